@@ -0,0 +1,134 @@
+package renderingengine;
+
+import java.util.Arrays;
+
+/**
+ * A counting Bloom filter of the tag names, ids and classes of the ancestors
+ * of the element being styled.
+ *
+ * <p> Each name sets two of {@value #SIZE} counters, chosen from the hash of
+ * its {@code Atom}; an element increments the counters of its names when it
+ * is entered and decrements them when it is left. If a counter of a name is
+ * zero, no ancestor has that name, so a descendant selector that needs it is
+ * rejected without walking the ancestors. The converse does not hold: a
+ * name may look present because of other names, so a selector that passes
+ * the filter must still be matched. A counter that reaches its maximum stays
+ * there, which can only make names look present.
+ *
+ * @see StyleContext
+ */
+public final class AncestorFilter {
+
+	// +-----------+-------------------------------
+	// | Constants |
+	// +-----------+
+	static final int BITS = 12;
+	static final int SIZE = 1 << BITS;
+	static final int MASK = SIZE - 1;
+	static final int MAX_COUNT = 0xFF;
+
+	// +--------+----------------------------------
+	// | Fields |
+	// +--------+
+	final byte[] counters;
+
+	// +--------------+---------------------------
+	// | Constructors |
+	// +--------------+
+
+	/**
+	 * Constructs an empty {@code AncestorFilter}.
+	 */
+	public AncestorFilter() {
+		counters = new byte[SIZE];
+	} // AncestorFilter()
+
+	// +---------+--------------------------------------------------
+	// | Methods |
+	// +---------+
+
+	/**
+	 * Adds the names of the specified element.
+	 *
+	 * @param el an {@code Element}
+	 */
+	public void push(Element el) {
+		update(el, 1);
+	} // push(Element)
+
+	/**
+	 * Removes the names of the specified element, which must have been added.
+	 *
+	 * @param el an {@code Element}
+	 */
+	public void pop(Element el) {
+		update(el, -1);
+	} // pop(Element)
+
+	/**
+	 * Removes every name.
+	 */
+	public void clear() {
+		Arrays.fill(counters, (byte) 0);
+	} // clear()
+
+	/**
+	 * Checks if some ancestor may have the specified name.
+	 *
+	 * @param name an {@code Atom}
+	 * @return false if no ancestor has name
+	 */
+	public boolean mightContain(Atom name) {
+		int h = spread(name);
+		return counters[h & MASK] != 0 && counters[(h >>> BITS) & MASK] != 0;
+	} // mightContain(Atom)
+
+	/**
+	 * Checks if the ancestors may have every name of the specified selector.
+	 * When this is false, no ancestor matches selector.
+	 *
+	 * @param selector a {@code SimpleSelector}
+	 * @return boolean
+	 */
+	public boolean mightMatch(SimpleSelector selector) {
+		if (selector.tagName != Atom.EMPTY && !mightContain(selector.tagName))
+			return false;
+		if (selector.id != Atom.EMPTY && !mightContain(selector.id))
+			return false;
+		for (int i = 0; i < selector.classes.size(); i++) {
+			if (!mightContain(selector.classes.get(i)))
+				return false;
+		}
+		return true;
+	} // mightMatch(SimpleSelector)
+
+	private void update(Element el, int delta) {
+		add(el.tagName, delta);
+		if (el.id != Atom.EMPTY)
+			add(el.id, delta);
+		for (int i = 0; i < el.classes.length; i++)
+			add(el.classes[i], delta);
+	} // update(Element, int)
+
+	private void add(Atom name, int delta) {
+		int h = spread(name);
+		count(h & MASK, delta);
+		count((h >>> BITS) & MASK, delta);
+	} // add(Atom, int)
+
+	private void count(int slot, int delta) {
+		int c = counters[slot] & 0xFF;
+		if (c != MAX_COUNT)
+			counters[slot] = (byte) (c + delta);
+	} // count(int, int)
+
+	/**
+	 * Mixes the hash of the specified atom, so that both counters come from
+	 * well spread bits.
+	 */
+	private static int spread(Atom name) {
+		int h = name.hash * 0x9E3779B9;
+		return h ^ (h >>> 15);
+	} // spread(Atom)
+
+} // class AncestorFilter
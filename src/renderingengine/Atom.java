@@ -0,0 +1,333 @@
+package renderingengine;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A canonical name, such as a tag name, an attribute name, a class or an id.
+ *
+ * <p> Every distinct name in use has exactly one {@code Atom}, shared by
+ * {@code HTMLParser} and {@code CSSParser}. Two names are therefore equal if
+ * and only if their atoms are the same object, so atoms are compared by
+ * identity, or by their {@code id} when they index an array.
+ *
+ * <p> The atoms live in two tables. The fixed vocabulary of html tag and
+ * attribute names is interned when the class is loaded, gets small ids that
+ * are the same in every run, and is never added to afterwards, so it is read
+ * without a lock. Any other name, such as the ids, classes and keywords of a
+ * page, is interned in a concurrent table that only holds it weakly: its atom
+ * lives as long as some element, selector or value refers to it, and is
+ * dropped from the table once the pages that used it are gone. Such an atom
+ * has no id.
+ *
+ * <p> The parsers intern a name straight from a span of their input; a name
+ * of the vocabulary costs a hash and a comparison, and no new {@code String}.
+ */
+public final class Atom {
+
+	// +-----------+-------------------------------
+	// | Constants |
+	// +-----------+
+
+	/** The id of an atom that is not in the vocabulary. */
+	public static final int NO_ID = -1;
+
+	/** The names interned when the class is loaded, in the order of their ids. */
+	private static final String[] VOCABULARY = { "",
+			// tags
+			"html", "head", "body", "title", "meta", "link", "style", "script", "noscript", "base", "div", "span",
+			"p", "a", "b", "i", "u", "s", "q", "em", "strong", "small", "big", "sub", "sup", "code", "pre", "kbd",
+			"samp", "var", "tt", "cite", "dfn", "abbr", "mark", "del", "ins", "font", "center", "strike", "h1",
+			"h2", "h3", "h4", "h5", "h6", "ul", "ol", "li", "dl", "dt", "dd", "table", "caption", "thead", "tbody",
+			"tfoot", "tr", "td", "th", "col", "colgroup", "img", "br", "hr", "wbr", "area", "map", "embed",
+			"object", "param", "source", "track", "audio", "video", "canvas", "iframe", "frame", "frameset",
+			"form", "input", "button", "select", "option", "optgroup", "textarea", "label", "fieldset", "legend",
+			"keygen", "command", "header", "footer", "nav", "main", "section", "article", "aside", "address",
+			"blockquote", "figure", "figcaption", "details", "summary", "menu", "time", "ruby", "rb", "rp", "rt",
+			"rtc",
+			// attributes
+			"id", "class", "href", "rel", "type", "src", "width", "height", "alt", "name", "value", "lang", "dir",
+			"charset", "content", "action", "method", "target", "align", "valign", "border", "colspan", "rowspan",
+			"for", "media", "size", "color", "face", "bgcolor",
+			// display keywords
+			"block", "inline", "none" };
+
+	/** Open-addressing hash table of the vocabulary, probed linearly. */
+	private static final Atom[] FIXED;
+	/** The vocabulary, indexed by id. */
+	private static final Atom[] ATOMS;
+	static {
+		int capacity = Integer.highestOneBit(4 * VOCABULARY.length);
+		FIXED = new Atom[capacity];
+		ATOMS = new Atom[VOCABULARY.length];
+		for (int id = 0; id < VOCABULARY.length; id++) {
+			String name = VOCABULARY[id];
+			Atom atom = new Atom(name, id, name.hashCode());
+			int slot = mix(atom.hash) & (capacity - 1);
+			while (FIXED[slot] != null)
+				slot = (slot + 1) & (capacity - 1);
+			FIXED[slot] = atom;
+			ATOMS[id] = atom;
+		}
+	}
+
+	/** The other atoms, weakly held, keyed by their names. */
+	private static final ConcurrentHashMap<Name, WeakAtom> OTHERS = new ConcurrentHashMap<Name, WeakAtom>();
+	/** The references of the other atoms that have been collected. */
+	private static final ReferenceQueue<Atom> COLLECTED = new ReferenceQueue<Atom>();
+
+	/** The empty name, used for a missing tag name, id or class. */
+	public static final Atom EMPTY = of("");
+
+	public static final Atom HTML = of("html");
+	public static final Atom HEAD = of("head");
+	public static final Atom BODY = of("body");
+	public static final Atom TITLE = of("title");
+	public static final Atom META = of("meta");
+	public static final Atom LINK = of("link");
+	public static final Atom STYLE = of("style");
+	public static final Atom SCRIPT = of("script");
+	public static final Atom DIV = of("div");
+	public static final Atom SPAN = of("span");
+	public static final Atom P = of("p");
+	public static final Atom A = of("a");
+	public static final Atom B = of("b");
+	public static final Atom I = of("i");
+	public static final Atom U = of("u");
+	public static final Atom EM = of("em");
+	public static final Atom STRONG = of("strong");
+	public static final Atom H1 = of("h1");
+	public static final Atom H2 = of("h2");
+	public static final Atom H3 = of("h3");
+	public static final Atom H4 = of("h4");
+	public static final Atom H5 = of("h5");
+	public static final Atom H6 = of("h6");
+	public static final Atom UL = of("ul");
+	public static final Atom OL = of("ol");
+	public static final Atom LI = of("li");
+	public static final Atom TABLE = of("table");
+	public static final Atom TR = of("tr");
+	public static final Atom TD = of("td");
+	public static final Atom TH = of("th");
+	public static final Atom PRE = of("pre");
+	public static final Atom IMG = of("img");
+	public static final Atom BR = of("br");
+	public static final Atom HR = of("hr");
+	public static final Atom INPUT = of("input");
+	public static final Atom FORM = of("form");
+
+	public static final Atom ID = of("id");
+	public static final Atom CLASS = of("class");
+	public static final Atom HREF = of("href");
+	public static final Atom REL = of("rel");
+	public static final Atom TYPE = of("type");
+	public static final Atom SRC = of("src");
+	public static final Atom WIDTH = of("width");
+	public static final Atom HEIGHT = of("height");
+
+	public static final Atom BLOCK = of("block");
+	public static final Atom INLINE = of("inline");
+	public static final Atom NONE = of("none");
+
+	// +--------+----------------------------------
+	// | Fields |
+	// +--------+
+	final String name;
+	final int id;
+	final int hash;
+
+	// +--------------+---------------------------
+	// | Constructors |
+	// +--------------+
+
+	private Atom(String name, int id, int hash) {
+		this.name = name;
+		this.id = id;
+		this.hash = hash;
+	} // Atom(String, int, int)
+
+	// +---------+--------------------------------------------------
+	// | Methods |
+	// +---------+
+
+	/**
+	 * Gets the atom of the specified name.
+	 *
+	 * @param name a String
+	 * @return the {@code Atom} of name
+	 */
+	public static Atom of(String name) {
+		return intern(name, 0, name.length(), false);
+	} // of(String)
+
+	/**
+	 * Gets the atom of the name in the span [start, end) of the specified
+	 * sequence.
+	 *
+	 * @param src a {@code CharSequence}
+	 * @param start an int
+	 * @param end an int
+	 * @return an {@code Atom}
+	 */
+	public static Atom of(CharSequence src, int start, int end) {
+		return intern(src, start, end, false);
+	} // of(CharSequence, int, int)
+
+	/**
+	 * Gets the atom of the lower case form of the name in the span [start, end)
+	 * of the specified sequence, as used for html tag and attribute names.
+	 *
+	 * @param src a {@code CharSequence}
+	 * @param start an int
+	 * @param end an int
+	 * @return an {@code Atom}
+	 */
+	public static Atom lowerCase(CharSequence src, int start, int end) {
+		return intern(src, start, end, true);
+	} // lowerCase(CharSequence, int, int)
+
+	/**
+	 * Gets the atom of the vocabulary with the specified id.
+	 *
+	 * @param id an int smaller than {@link #count()}
+	 * @return an {@code Atom}
+	 */
+	public static Atom get(int id) {
+		return ATOMS[id];
+	} // get(int)
+
+	/**
+	 * Gets the number of atoms of the vocabulary, which is one more than the
+	 * largest id.
+	 *
+	 * @return an int
+	 */
+	public static int count() {
+		return ATOMS.length;
+	} // count()
+
+	/**
+	 * Finds the atom of the span [start, end) of src, in the vocabulary or
+	 * else among the other atoms, adding it there if it is not there yet.
+	 */
+	private static Atom intern(CharSequence src, int start, int end, boolean lowerCase) {
+		int h = 0;
+		for (int i = start; i < end; i++)
+			h = 31 * h + charAt(src, i, lowerCase);
+		int mask = FIXED.length - 1;
+		for (int slot = mix(h) & mask; FIXED[slot] != null; slot = (slot + 1) & mask) {
+			Atom a = FIXED[slot];
+			if (a.hash == h && matches(a.name, src, start, end, lowerCase))
+				return a;
+		}
+
+		expunge();
+		Name key = new Name(src, start, end, lowerCase, h);
+		while (true) {
+			WeakAtom kept = OTHERS.get(key);
+			Atom atom = (kept == null) ? null : kept.get();
+			if (atom != null)
+				return atom;
+
+			char[] chars = new char[end - start];
+			for (int i = start; i < end; i++)
+				chars[i - start] = charAt(src, i, lowerCase);
+			atom = new Atom(new String(chars), NO_ID, h);
+			WeakAtom ref = new WeakAtom(atom);
+			if (kept == null ? OTHERS.putIfAbsent(ref.key, ref) == null : OTHERS.replace(ref.key, kept, ref))
+				return atom;
+		}
+	} // intern(CharSequence, int, int, boolean)
+
+	/**
+	 * Removes the entries of the atoms that have been collected.
+	 */
+	private static void expunge() {
+		Reference<? extends Atom> ref;
+		while ((ref = COLLECTED.poll()) != null)
+			OTHERS.remove(((WeakAtom) ref).key, ref);
+	} // expunge()
+
+	/**
+	 * Spreads the high bits of a string hash over the low bits used as a slot.
+	 */
+	private static int mix(int h) {
+		return h ^ (h >>> 16);
+	} // mix(int)
+
+	private static char charAt(CharSequence src, int i, boolean lowerCase) {
+		char c = src.charAt(i);
+		return lowerCase ? Character.toLowerCase(c) : c;
+	} // charAt(CharSequence, int, boolean)
+
+	private static boolean matches(String name, CharSequence src, int start, int end, boolean lowerCase) {
+		if (name.length() != end - start)
+			return false;
+		for (int i = start; i < end; i++) {
+			if (name.charAt(i - start) != charAt(src, i, lowerCase))
+				return false;
+		}
+		return true;
+	} // matches(String, CharSequence, int, int, boolean)
+
+	@Override
+	public String toString() {
+		return name;
+	} // toString()
+
+	/**
+	 * {@code Name} is the key of an atom that is not in the vocabulary: the
+	 * name of the atom itself once kept, or a span of a parser's input while
+	 * it is looked up.
+	 */
+	private static final class Name {
+		final CharSequence src;
+		final int start;
+		final int end;
+		final boolean lowerCase;
+		final int hash;
+
+		Name(CharSequence src, int start, int end, boolean lowerCase, int hash) {
+			this.src = src;
+			this.start = start;
+			this.end = end;
+			this.lowerCase = lowerCase;
+			this.hash = hash;
+		} // Name(CharSequence, int, int, boolean, int)
+
+		@Override
+		public int hashCode() {
+			return hash;
+		} // hashCode()
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Name))
+				return false;
+			Name other = (Name) obj;
+			if (hash != other.hash || end - start != other.end - other.start)
+				return false;
+			for (int i = 0; i < end - start; i++) {
+				if (charAt(src, start + i, lowerCase) != charAt(other.src, other.start + i, other.lowerCase))
+					return false;
+			}
+			return true;
+		} // equals(Object)
+	} // class Name
+
+	/**
+	 * {@code WeakAtom} is the weak reference of a kept atom, which remembers
+	 * its key so that the entry can be removed once the atom is collected.
+	 */
+	private static final class WeakAtom extends WeakReference<Atom> {
+		final Name key;
+
+		WeakAtom(Atom atom) {
+			super(atom, COLLECTED);
+			this.key = new Name(atom.name, 0, atom.name.length(), false, atom.hash);
+		} // WeakAtom(Atom)
+	} // class WeakAtom
+
+} // class Atom
@@ -1,12 +1,9 @@
 package renderingengine;
 
 import java.io.File;
-import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Scanner;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * An extended version of the CSS parser component of the HTML rendering engine
@@ -29,16 +26,6 @@ public class CSSParser extends Parser {
 	// +--------+
 	Stylesheet sheet;
 
-	static String stringColorToHex;
-
-	static {
-		try {
-			stringColorToHex = fileToString("./rgb.txt");
-		} catch (FileNotFoundException e) {
-			System.out.println("File " + "rgb.txt" + " not found at expected path.");
-		}
-	}
-
 	// +--------------+---------------------------
 	// | Constructors |
 	// +--------------+
@@ -48,41 +35,54 @@ public class CSSParser extends Parser {
 	 * Characters in the string are read successively to construct
 	 * individual {@code Rule} objects that will added into {@code this.sheet}.
 	 * 
-	 * @param input a {@code String}
+	 * @param input a {@code String}, or the {@code CharBuffer} of a css file
 	 */
-	public CSSParser(String input) {
+	public CSSParser(CharSequence input) {
 		super(input);
 		this.sheet = parse();
-	} // CSSParser(String)
+	} // CSSParser(CharSequence)
 
 	// +---------+--------------------------------------------------
 	// | Methods |
 	// +---------+
 
 	/**
-	 * Creates a string representation of each line in the file of the specified
+	 * Creates a string representation of the file of the specified
 	 * path string. 
 	 * 
 	 * @param path a {@code String} that denotes the path of the desired file
 	 * @return a string representation of the file.
-	 * @throws FileNotFoundException when the file specified in {@code path} is not
-	 *                               found.
+	 * @throws IOException when the file specified in {@code path} cannot be
+	 *                     read.
+	 * @see ResourceLoader
 	 */
-	public static String fileToString(String path) throws FileNotFoundException {
-		File f = new File(path);
-		Scanner sc = new Scanner(f);
-		String css = "";
-		while (sc.hasNextLine()) {
-			css += sc.nextLine();
-		}
-		sc.close();
-		return css;
+	public static String fileToString(String path) throws IOException {
+		return ResourceLoader.loadString(new File(path));
 	} // fileToString(String)
 
+	/**
+	 * Removes the comments from a css string in a single pass. An unterminated
+	 * comment runs to the end of the input.
+	 */
 	@Override
-	public void clean() {
-		input = input.replaceAll("/\\*.+\\*/", "");
-	} // clean()
+	public String clean(CharSequence raw) {
+		int len = raw.length();
+		StringBuilder css = new StringBuilder(len);
+		int i = 0;
+		while (i < len) {
+			char c = raw.charAt(i);
+			if (c == '/' && i + 1 < len && raw.charAt(i + 1) == '*') {
+				i += 2;
+				while (i < len && !(raw.charAt(i) == '*' && i + 1 < len && raw.charAt(i + 1) == '/'))
+					i++;
+				i += 2;
+			} else {
+				css.append(c);
+				i++;
+			}
+		}
+		return css.toString();
+	} // clean(CharSequence)
 
 	/**
 	 * Parses input to create the Stylesheet object.
@@ -110,70 +110,82 @@ public class CSSParser extends Parser {
 	 */
 	public Rule parseRule() {
 		ArrayList<Selector> selectors = parseSelectors();
-		ArrayList<Declaration> decl = parseDeclarations();
 		if (selectors == null)
 			return null;
+		ArrayList<Declaration> decl = parseDeclarations();
 
 		return new Rule(selectors, decl);
 	} // parseRule()
 
 	/**
-	 * Parses the selectors to add into the Rule.
+	 * Parses the selectors to add into the Rule. A selector list that cannot be
+	 * parsed, such as one with a combinator other than whitespace, is skipped
+	 * along with its declarations.
 	 * 
 	 * @return an {@code ArrayList} parameterized to {@code Selector}
-	 * which contains all the selectors of the specific CSS rule.
+	 * which contains all the selectors of the specific CSS rule, or null if the
+	 * rule was skipped.
 	 */
 	public ArrayList<Selector> parseSelectors() {
-		char next = input.charAt(currPos);
 		ArrayList<Selector> selectors = new ArrayList<Selector>();
-		do {
+		char next;
+		while (true) {
 			consumeWhiteSpace();
-			selectors.add(parseSimpleSelector());
-			next = input.charAt(currPos);
-			if (next == ',') {
-				currPos++;
-				consumeWhiteSpace();
-			}
-
-			else if (next == ' ') {
-				if (input.charAt(currPos + advanceWhile(c -> Character.isWhitespace(c))) != '{') {
-					SimpleSelector last = (SimpleSelector) selectors.remove(selectors.size() - 1);
-					selectors.add(parseDescendantSelector(last));
-
-				}
-				consumeWhiteSpace();
-				next = input.charAt(currPos);
+			if (eof())
+				return null;
+			Selector selector = parseSimpleSelector();
+			consumeWhiteSpace();
+			next = eof() ? '}' : input.charAt(currPos);
+			if (next != ',' && next != '{' && next != '}') {
+				selector = parseDescendantSelector((SimpleSelector) selector);
+				next = eof() ? '}' : input.charAt(currPos);
 			}
+			selectors.add(selector);
 
-			else if (next != '{') {
+			if (next == '{')
+				break;
+			else if (next == ',')
+				currPos++;
+			else {
 				// System.out.println("Unexpected input in selector list: " + next);
-				// System.exit(1);
-				consumeWhile(c -> c != '}');
+				skipUntil('}');
 				currPos++;
 				return null;
 			}
-		} while (next != '{');
+		}
 
 		Collections.sort(selectors); // Sort by specificity in descending order
 		System.out.println("Selectors: " + selectors);
 		return selectors;
 	} // parseSelectors()
 
-
-	public DescendantSelector parseDescendantSelector(SimpleSelector last) {
+	/**
+	 * Parses the rest of a descendant selector, whose first compound selector
+	 * is the specified one, up to the next ',' or '{'. The chain may have any
+	 * number of compound selectors; it ends early at a character that does
+	 * not start one.
+	 * 
+	 * @param first a {@code SimpleSelector}
+	 * @return a {@code DescendantSelector}
+	 */
+	public DescendantSelector parseDescendantSelector(SimpleSelector first) {
 		DescendantSelector sel = new DescendantSelector();
 
-		sel.chain.add(last);
-		consumeWhiteSpace();
-		sel.chain.add(parseSimpleSelector());
+		sel.addPart(first);
 		consumeWhiteSpace();
-		char next = input.charAt(currPos);
-		if (next != '{') {
-			System.out.println("Unexpected input in selector list: " + next);
-			System.exit(1);
+		while (!eof()) {
+			char next = input.charAt(currPos);
+			if (next == ',' || next == '{')
+				break;
+			int start = currPos;
+			SimpleSelector part = parseSimpleSelector();
+			if (currPos == start)
+				break; // not a compound selector
+			sel.addPart(part);
+			consumeWhiteSpace();
 		}
 		return sel;
-	}
+	} // parseDescendantSelector(SimpleSelector)
 
 	/**
 	 * Retrieves a simple selector from the current position 
@@ -187,19 +199,19 @@ public class CSSParser extends Parser {
 		while (!eof()) {
 			if (next == '#') {
 				currPos++;
-				selector.setId(parseIdentifier());
+				selector.setId(parseIdentifierAtom());
 			}
 
 			else if (next == '.') {
 				currPos++;
-				selector.addClass(parseIdentifier());
+				selector.addClass(parseIdentifierAtom());
 			}
 
 			else if (next == '*')
 				currPos++;
 
 			else if (validIdentifierChar(next)) {
-				selector.setTagName(parseIdentifier());
+				selector.setTagName(parseIdentifierAtom());
 			}
 
 			else
@@ -246,7 +258,6 @@ public class CSSParser extends Parser {
 			return parseShorthandDec(dec.name);
 
 		dec.setValue(parseValue(dec.name));
-		dec = modifyIfRelativeLength(dec);
 		consumeWhiteSpace();
 		if (input.charAt(currPos) == ';')
 			currPos++; // Skip ; (end of declaration)
@@ -259,17 +270,6 @@ public class CSSParser extends Parser {
 	
 	
 	
-	public Declaration modifyIfRelativeLength(Declaration dec) {
-		if (dec.value instanceof Length) {
-			Length val = (Length) dec.value;
-			if (val.unit.equals("%"))
-				dec.setName("REL-" + dec.name);
-		}
-		return dec;
-	}
-	
-	
-	
 
 	/**
 	 * Parses the identifier of a selector
@@ -277,9 +277,18 @@ public class CSSParser extends Parser {
 	 * @return the name of the selector
 	 */
 	public String parseIdentifier() {
-		return consumeWhile(c -> validIdentifierChar(c));
+		return consumeWhile(IDENTIFIER);
 	} // parseIdentifier()
 
+	/**
+	 * Parses the identifier of a selector as an atom
+	 * 
+	 * @return the {@code Atom} of the name of the selector
+	 */
+	public Atom parseIdentifierAtom() {
+		return consumeAtom(IDENTIFIER, false);
+	} // parseIdentifierAtom()
+
 	/**
 	 * Checks if the specified character can exist in an identifier
 	 * 
@@ -288,7 +297,7 @@ public class CSSParser extends Parser {
 	 * in a selector's name.
 	 */
 	public boolean validIdentifierChar(char c) {
-		return (c == '-' || c == '_' || Character.isLetterOrDigit(c) || c == '%');
+		return inClass(c, IDENTIFIER);
 	} // validIdentifierChar(char)
 
 	/**
@@ -317,7 +326,7 @@ public class CSSParser extends Parser {
 	public ArrayList<Declaration> parseShorthandDec(String name) {
 		ArrayList<Declaration> lst = new ArrayList<Declaration>();
 		if (name.equals("padding")) {
-			String[] values = consumeWhile(c -> (c != ';')).split(" ");
+			String[] values = consumeUntil(';').split(" ");
 			if (values.length >= 1) {
 				Length len1 = parseLength(values[0]);
 				Declaration top = new Declaration("padding-top", len1);
@@ -344,7 +353,7 @@ public class CSSParser extends Parser {
 				Collections.addAll(lst, new Declaration[] { top, right, bottom, left });
 			}
 		} else if (name.contains("border")) {
-			String[] values = consumeWhile(c -> (c != ';')).split(" ");
+			String[] values = consumeUntil(';').split(" ");
 			if (values.length >= 1) {
 				boolean indicator = false;
 				if (Character.isDigit(values[0].charAt(0))) {
@@ -362,7 +371,7 @@ public class CSSParser extends Parser {
 		}
 
 		else if (name.equals("margin")) {
-			String[] values = consumeWhile(c -> (c != ';')).split(" ");
+			String[] values = consumeUntil(';').split(" ");
 			if (values.length >= 1) {
 				Length len1 = parseLength(values[0]);
 				Declaration top = new Declaration("margin-top", len1);
@@ -455,7 +464,7 @@ public class CSSParser extends Parser {
 	 * @return a double
 	 */
 	public double parseFloat() {
-		return Double.parseDouble(consumeWhile(c -> (Character.isDigit(c) || c == '.')));
+		return Double.parseDouble(consumeWhile(NUMBER));
 	} // parseFloat()
 
 	/**
@@ -504,14 +513,10 @@ public class CSSParser extends Parser {
 			return new Color(p1, p2, p3, 255);
 		}
 
-		String stringColor = parseIdentifier();
-		Pattern pattern = Pattern.compile("[0-9]+\\s+" + stringColor);
-		Matcher matcher = pattern.matcher(stringColorToHex);
-		String[] codes = stringColorToHex.substring(matcher.start(), matcher.end()).split("//s+");
-
+		Color color = NamedColors.get(parseIdentifier());
 		input = dup;
 		currPos = dupPos;
-		return new Color(Integer.parseInt(codes[0]), Integer.parseInt(codes[1]), Integer.parseInt(codes[2]), 255);
+		return color;
 
 	} // parseColor(String, int)
 
@@ -532,11 +537,7 @@ public class CSSParser extends Parser {
 			return new Color(parseHexPair(), parseHexPair(), parseHexPair(), 255);
 		}
 
-		String stringColor = parseIdentifier();
-		Pattern pattern = Pattern.compile("[0-9]+\\s+" + stringColor);
-		Matcher matcher = pattern.matcher(stringColorToHex);
-		String[] codes = stringColorToHex.substring(matcher.start(), matcher.end()).split("//s+");
-		return new Color(Integer.parseInt(codes[0]), Integer.parseInt(codes[1]), Integer.parseInt(codes[2]), 255);
+		return NamedColors.get(parseIdentifier());
 
 	} // parseColor(int)
 
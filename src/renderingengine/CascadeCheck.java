@@ -0,0 +1,251 @@
+package renderingengine;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.Random;
+
+/**
+ * {@code CascadeCheck} checks the selector index and the cascade of a
+ * {@code Stylesheet} against a brute-force cascade. It is run by hand, out of
+ * the rendering pipeline, and exits with status 1 at the first difference.
+ */
+public final class CascadeCheck {
+
+	// +---------+----------------------------------------------------
+	// | Methods |
+	// +---------+
+
+	/**
+	 * Checks the specificity of every selector of a stylesheet, and the style
+	 * that {@code StyleTree.matchingRules} gives every element of a page,
+	 * against a brute-force cascade: the specificity is counted again from
+	 * the parts of the selector, and the style is made by trying every
+	 * selector of every rule, sorting those that match by specificity and
+	 * then by position, and applying their declarations in that order.
+	 *
+	 * @param args the path of an html file, and the path of a css file or the
+	 *            number of random rules to make from the names of the page
+	 * @throws Exception if a file cannot be read
+	 */
+	public static void main(String[] args) throws Exception {
+		DOM dom = new HTMLParser(Main.fileToString(new File(args[0]))).dom;
+		String css;
+		if (args.length > 1 && !args[1].matches("[0-9]+"))
+			css = Main.fileToString(new File(args[1]));
+		else
+			css = randomRules(dom.root, (args.length > 1) ? Integer.parseInt(args[1]) : 600, new Random(1));
+		Stylesheet sheet = new CSSParser(css).sheet;
+
+		ArrayList<Selector> selectors = new ArrayList<Selector>();
+		ArrayList<Rule> owners = new ArrayList<Rule>();
+		for (Rule rule : sheet.rules) {
+			for (Selector selector : rule.selectors) {
+				Specificity spec = countSpecificity(selector);
+				Specificity kept = selector.getSpec();
+				if (spec.a != kept.a || spec.b != kept.b || spec.c != kept.c) {
+					System.out.println("Specificity differs for " + selector);
+					System.exit(1);
+				}
+				selectors.add(selector);
+				owners.add(rule);
+			}
+		}
+
+		StyleTree tree = new StyleTree(dom, sheet);
+		StyleContext context = new StyleContext();
+		ArrayList<Element> path = new ArrayList<Element>(); // the ancestors and the element being checked
+		ArrayList<Node> pending = new ArrayList<Node>(); // null marks the exit of an element
+		pending.add(dom.root);
+		int elements = 0;
+		while (!pending.isEmpty()) {
+			Node n = pending.remove(pending.size() - 1);
+			if (n == null) {
+				context.leave();
+				path.remove(path.size() - 1);
+				continue;
+			}
+			if (!(n instanceof Element))
+				continue;
+			Element el = (Element) n;
+			path.add(el);
+			ComputedStyle style = tree.matchingRules(el, sheet, context);
+			ComputedStyle expected = bruteForceStyle(path, selectors, owners);
+			for (Property p : Property.VALUES) {
+				if (style.get(p) != expected.get(p)) {
+					System.out.println("Cascade differs for " + p.name + " of element " + elements + ", " + el);
+					System.exit(1);
+				}
+			}
+			elements++;
+			context.enter(el);
+			pending.add(null);
+			for (int i = n.children.size() - 1; i >= 0; i--)
+				pending.add(n.children.get(i));
+		}
+		System.out.println("selectors: " + selectors.size());
+		System.out.println("elements: " + elements);
+		System.out.println("checks: " + (long) elements * Property.VALUES.length);
+	} // main(String[])
+
+	/**
+	 * Counts the ids, classes and tag names of the parts of a selector.
+	 */
+	private static Specificity countSpecificity(Selector selector) {
+		ArrayList<SimpleSelector> parts = new ArrayList<SimpleSelector>();
+		if (selector instanceof SimpleSelector)
+			parts.add((SimpleSelector) selector);
+		else if (selector instanceof DescendantSelector)
+			parts.addAll(((DescendantSelector) selector).chain);
+		Specificity spec = new Specificity(0, 0, 0);
+		for (SimpleSelector part : parts) {
+			spec.a += (part.id != Atom.EMPTY) ? 1 : 0;
+			spec.b += part.classes.size();
+			spec.c += (part.tagName != Atom.EMPTY) ? 1 : 0;
+		}
+		return spec;
+	} // countSpecificity(Selector)
+
+	/**
+	 * Makes the style of the last element of a path by trying every selector,
+	 * in the order of the stylesheet, and applying the declarations of those
+	 * that match after a stable sort by specificity.
+	 */
+	private static ComputedStyle bruteForceStyle(ArrayList<Element> path, ArrayList<Selector> selectors,
+			ArrayList<Rule> owners) {
+		ArrayList<Integer> matched = new ArrayList<Integer>();
+		for (int i = 0; i < selectors.size(); i++) {
+			if (!bruteForceMatches(path, selectors.get(i)))
+				continue;
+			Specificity spec = countSpecificity(selectors.get(i));
+			int j = matched.size();
+			while (j > 0 && compareSpecificity(countSpecificity(selectors.get(matched.get(j - 1))), spec) > 0)
+				j--;
+			matched.add(j, i);
+		}
+		ComputedStyle style = new ComputedStyle();
+		for (int i : matched) {
+			for (Declaration decl : owners.get(i).declarations) {
+				if (decl.property != null)
+					style.set(decl.property, decl.value);
+			}
+		}
+		return style;
+	} // bruteForceStyle(ArrayList<Element>, ArrayList<Selector>, ArrayList<Rule>)
+
+	/**
+	 * Checks if the last element of a path matches a selector, each part of a
+	 * descendant selector being matched by the nearest element above the one
+	 * that matched the next part.
+	 */
+	private static boolean bruteForceMatches(ArrayList<Element> path, Selector selector) {
+		ArrayList<SimpleSelector> parts = new ArrayList<SimpleSelector>();
+		if (selector instanceof SimpleSelector)
+			parts.add((SimpleSelector) selector);
+		else if (selector instanceof DescendantSelector)
+			parts.addAll(((DescendantSelector) selector).chain);
+		if (parts.isEmpty())
+			return false;
+		int k = path.size() - 1;
+		if (!bruteForceMatches(path.get(k--), parts.get(parts.size() - 1)))
+			return false;
+		for (int j = parts.size() - 2; j >= 0; j--) {
+			while (k >= 0 && !bruteForceMatches(path.get(k), parts.get(j)))
+				k--;
+			if (k-- < 0)
+				return false;
+		}
+		return true;
+	} // bruteForceMatches(ArrayList<Element>, Selector)
+
+	private static boolean bruteForceMatches(Element el, SimpleSelector part) {
+		if (part.tagName != Atom.EMPTY && part.tagName != el.tagName)
+			return false;
+		if (part.id != Atom.EMPTY && part.id != el.id)
+			return false;
+		for (Atom clas : part.classes) {
+			if (!el.hasClass(clas))
+				return false;
+		}
+		return true;
+	} // bruteForceMatches(Element, SimpleSelector)
+
+	private static int compareSpecificity(Specificity x, Specificity y) {
+		if (x.a != y.a)
+			return x.a - y.a;
+		if (x.b != y.b)
+			return x.b - y.b;
+		return x.c - y.c;
+	} // compareSpecificity(Specificity, Specificity)
+
+	/**
+	 * Makes a stylesheet of random rules whose selectors use the tag names,
+	 * ids and classes of the elements of a page.
+	 */
+	private static String randomRules(Node root, int count, Random random) {
+		LinkedHashSet<String> tagNames = new LinkedHashSet<String>();
+		LinkedHashSet<String> idNames = new LinkedHashSet<String>();
+		LinkedHashSet<String> classNames = new LinkedHashSet<String>();
+		ArrayList<Node> pending = new ArrayList<Node>();
+		pending.add(root);
+		while (!pending.isEmpty()) {
+			Node n = pending.remove(pending.size() - 1);
+			if (n instanceof Element) {
+				Element el = (Element) n;
+				tagNames.add(el.tagName.name);
+				if (el.id != Atom.EMPTY)
+					idNames.add(el.id.name);
+				for (Atom clas : el.classes)
+					classNames.add(clas.name);
+			}
+			pending.addAll(n.children);
+		}
+		tagNames.remove("");
+		ArrayList<String> tags = new ArrayList<String>(tagNames);
+		ArrayList<String> ids = new ArrayList<String>(idNames);
+		ArrayList<String> classes = new ArrayList<String>(classNames);
+		if (tags.isEmpty())
+			tags.add("div");
+
+		String[] properties = { "color", "background", "margin-top", "padding-left", "font-size", "width" };
+		StringBuilder css = new StringBuilder();
+		for (int r = 0; r < count; r++) {
+			int selectorCount = 1 + random.nextInt(2);
+			for (int s = 0; s < selectorCount; s++) {
+				if (s > 0)
+					css.append(", ");
+				int parts = 1 + random.nextInt(3);
+				for (int p = 0; p < parts; p++) {
+					if (p > 0)
+						css.append(' ');
+					boolean named = false;
+					if (random.nextInt(3) > 0) {
+						css.append(tags.get(random.nextInt(tags.size())));
+						named = true;
+					}
+					if (!ids.isEmpty() && random.nextInt(8) == 0) {
+						css.append('#').append(ids.get(random.nextInt(ids.size())));
+						named = true;
+					}
+					for (int c = random.nextInt(3); c > 0 && !classes.isEmpty(); c--) {
+						css.append('.').append(classes.get(random.nextInt(classes.size())));
+						named = true;
+					}
+					if (!named)
+						css.append(tags.get(random.nextInt(tags.size())));
+				}
+			}
+			css.append(" {");
+			for (int d = 1 + random.nextInt(2); d > 0; d--) {
+				String property = properties[random.nextInt(properties.length)];
+				if (property.startsWith("color") || property.startsWith("background"))
+					css.append(' ').append(property).append(": #").append(String.format("%06x", random.nextInt(1 << 24)));
+				else
+					css.append(' ').append(property).append(": ").append(random.nextInt(40)).append("px");
+				css.append(';');
+			}
+			css.append(" }\n");
+		}
+		return css.toString();
+	} // randomRules(Node, int, Random)
+} // class CascadeCheck
@@ -0,0 +1,431 @@
+package renderingengine;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+
+/**
+ * A compact, struct-of-arrays implementation of a Document Object Model tree.
+ *
+ * <p> A node of a {@code CompactDOM} is an int, its index in parallel arrays:
+ * the tree is linked through the {@code parent}, {@code firstChild} and
+ * {@code nextSibling} arrays, the text of every text node and the value of
+ * every attribute are spans of one shared character buffer, and the
+ * attributes of all the elements are rows of one flat table. Like a
+ * {@code String}, the buffer takes one byte per character as long as the
+ * document is Latin-1. No object is
+ * kept per node, so a large document takes a fraction of the heap of a
+ * {@code DOM} and is traversed with sequential array reads.
+ *
+ * <p> A {@code CompactDOM} is filled by a parser as a {@code TreeSink},
+ * straight from the spans of its input, and read through its accessors;
+ * {@link #element(int, Element)} fills an {@code Element} view of a node
+ * for selector matching, so that the views of a traversal can be reused.
+ *
+ * @see HTMLParser#HTMLParser(CharSequence, boolean)
+ */
+public class CompactDOM implements TreeSink {
+
+	// +-----------+-------------------------------
+	// | Constants |
+	// +-----------+
+
+	/** The index of a missing node. */
+	public static final int NONE = -1;
+
+	static final int INITIAL_CAPACITY = 64;
+
+	// +--------+----------------------------------
+	// | Fields |
+	// +--------+
+	int size; // number of nodes
+	int root;
+	int[] parent;
+	int[] firstChild;
+	int[] nextSibling;
+	int[] lastChild; // only used while building
+	Atom[] tag; // tag name of an element, null for a text node
+	int[] dataStart; // text node: start of its text; element: first attribute row
+	int[] dataEnd; // text node: end of its text; element: end of its attribute rows
+
+	byte[] latin1; // shared buffer of text and attribute values, while they are Latin-1
+	char[] chars; // shared buffer once a character is not Latin-1, null before
+	int charCount;
+
+	int attrCount; // number of attribute rows
+	Atom[] attrName;
+	int[] attrValueStart;
+	int[] attrValueEnd;
+
+	int[] open; // stack of open elements, only used while building
+	int depth;
+	int current; // the element whose attributes are being added, or NONE
+	boolean done;
+
+	// +--------------+---------------------------
+	// | Constructors |
+	// +--------------+
+
+	/**
+	 * Constructs an empty {@code CompactDOM}, ready to receive nodes.
+	 */
+	public CompactDOM() {
+		root = NONE;
+		parent = new int[INITIAL_CAPACITY];
+		firstChild = new int[INITIAL_CAPACITY];
+		nextSibling = new int[INITIAL_CAPACITY];
+		lastChild = new int[INITIAL_CAPACITY];
+		tag = new Atom[INITIAL_CAPACITY];
+		dataStart = new int[INITIAL_CAPACITY];
+		dataEnd = new int[INITIAL_CAPACITY];
+		latin1 = new byte[16 * INITIAL_CAPACITY];
+		chars = null;
+		attrName = new Atom[INITIAL_CAPACITY];
+		attrValueStart = new int[INITIAL_CAPACITY];
+		attrValueEnd = new int[INITIAL_CAPACITY];
+		open = new int[INITIAL_CAPACITY];
+		current = NONE;
+	} // CompactDOM()
+
+	// +---------+--------------------------------------------------
+	// | Methods |
+	// +---------+
+
+	/**
+	 * Gets the number of nodes.
+	 *
+	 * @return an int
+	 */
+	public int size() {
+		return size;
+	} // size()
+
+	/**
+	 * Gets the root node.
+	 *
+	 * @return a node, or {@code NONE} if the document is empty
+	 */
+	public int root() {
+		return root;
+	} // root()
+
+	public int parent(int n) {
+		return parent[n];
+	} // parent(int)
+
+	public int firstChild(int n) {
+		return firstChild[n];
+	} // firstChild(int)
+
+	public int nextSibling(int n) {
+		return nextSibling[n];
+	} // nextSibling(int)
+
+	/**
+	 * Checks if the specified node is an element rather than a text node.
+	 *
+	 * @param n a node
+	 * @return boolean
+	 */
+	public boolean isElement(int n) {
+		return tag[n] != null;
+	} // isElement(int)
+
+	/**
+	 * Gets the tag name of the specified element.
+	 *
+	 * @param n a node
+	 * @return an {@code Atom}, or null for a text node
+	 */
+	public Atom tagName(int n) {
+		return tag[n];
+	} // tagName(int)
+
+	/**
+	 * Gets the text of the specified text node.
+	 *
+	 * @param n a node
+	 * @return a String
+	 */
+	public String text(int n) {
+		if (tag[n] != null)
+			return "";
+		return string(dataStart[n], dataEnd[n]);
+	} // text(int)
+
+	/**
+	 * Gets the value of the specified attribute of the specified element, as
+	 * written in the document. If the attribute is written more than once,
+	 * the last value is the one kept.
+	 *
+	 * @param n a node
+	 * @param name a lower case attribute name
+	 * @return a String, or null if the element has no such attribute
+	 */
+	public String attribute(int n, String name) {
+		if (tag[n] == null)
+			return null;
+		for (int row = dataEnd[n] - 1; row >= dataStart[n]; row--) {
+			if (attrName[row].name.equals(name))
+				return string(attrValueStart[row], attrValueEnd[row]);
+		}
+		return null;
+	} // attribute(int, String)
+
+	/**
+	 * Gets the attributes of the specified element.
+	 *
+	 * @param n a node
+	 * @return a new {@code HashMap} of the attribute-value pairs of n
+	 */
+	public HashMap<String, String> attributes(int n) {
+		HashMap<String, String> attributes = new HashMap<String, String>();
+		if (tag[n] != null) {
+			for (int row = dataStart[n]; row < dataEnd[n]; row++)
+				attributes.put(attrName[row].name, string(attrValueStart[row], attrValueEnd[row]));
+		}
+		return attributes;
+	} // attributes(int)
+
+	/**
+	 * Creates the string of the span [start, end) of the shared buffer.
+	 */
+	private String string(int start, int end) {
+		if (chars == null)
+			return new String(latin1, start, end - start, StandardCharsets.ISO_8859_1);
+		return new String(chars, start, end - start);
+	} // string(int, int)
+
+	/**
+	 * Makes a view of the specified element as an {@code Element} with no
+	 * children and no attributes, holding its tag, id and classes. The view
+	 * is not kept by the {@code CompactDOM}, and may be reused for another
+	 * element.
+	 *
+	 * @param n an element
+	 * @param view an {@code Element} view to reuse, or null
+	 * @return view, or a new view if view is null
+	 */
+	public Element element(int n, Element view) {
+		Atom id = Element.parseId(attribute(n, "id"));
+		Atom[] classes = Element.parseClasses(attribute(n, "class"));
+		if (view == null)
+			return new Element(tag[n], id, classes);
+		view.tagName = tag[n];
+		view.id = id;
+		view.classes = classes;
+		return view;
+	} // element(int, Element)
+
+	// +----------+-------------------------------------------------
+	// | Building |
+	// +----------+
+
+	@Override
+	public void startElement(Atom tagName) {
+		if (done)
+			return;
+		int n = add();
+		tag[n] = tagName;
+		dataStart[n] = attrCount;
+		dataEnd[n] = attrCount;
+		current = n;
+	} // startElement(Atom)
+
+	@Override
+	public void attribute(Atom name, CharSequence src, int start, int end) {
+		if (current == NONE)
+			return;
+		if (attrCount == attrName.length)
+			growAttributes(2 * attrCount);
+		attrName[attrCount] = name;
+		attrValueStart[attrCount] = charCount;
+		appendChars(src, start, end);
+		attrValueEnd[attrCount] = charCount;
+		dataEnd[current] = ++attrCount;
+	} // attribute(Atom, CharSequence, int, int)
+
+	@Override
+	public void endAttributes(boolean opens) {
+		if (current == NONE)
+			return;
+		int n = current;
+		current = NONE;
+		if (opens) {
+			if (depth == open.length)
+				open = grow(open, 2 * depth);
+			open[depth++] = n;
+		} else if (depth == 0) {
+			done = true;
+		}
+	} // endAttributes(boolean)
+
+	@Override
+	public void text(CharSequence src, int start, int end) {
+		if (done)
+			return;
+		int n = add();
+		tag[n] = null;
+		dataStart[n] = charCount;
+		appendChars(src, start, end);
+		dataEnd[n] = charCount;
+		if (depth == 0)
+			done = true;
+	} // text(CharSequence, int, int)
+
+	@Override
+	public void closeElement() {
+		if (depth > 0)
+			depth--;
+		if (depth == 0)
+			done = true;
+	} // closeElement()
+
+	@Override
+	public int depth() {
+		return depth;
+	} // depth()
+
+	@Override
+	public boolean isDone() {
+		return done;
+	} // isDone()
+
+	/**
+	 * Closes every open element and trims the arrays to their contents.
+	 *
+	 * @return this {@code CompactDOM}
+	 * @throws Exception if no node was added
+	 */
+	public CompactDOM finish() throws Exception {
+		depth = 0;
+		done = true;
+		if (root == NONE)
+			throw new Exception("DOM is empty");
+		parent = grow(parent, size);
+		firstChild = grow(firstChild, size);
+		nextSibling = grow(nextSibling, size);
+		dataStart = grow(dataStart, size);
+		dataEnd = grow(dataEnd, size);
+		Atom[] tags = new Atom[size];
+		System.arraycopy(tag, 0, tags, 0, size);
+		tag = tags;
+		lastChild = null;
+		open = null;
+
+		if (chars == null) {
+			byte[] text = new byte[charCount];
+			System.arraycopy(latin1, 0, text, 0, charCount);
+			latin1 = text;
+		} else {
+			char[] text = new char[charCount];
+			System.arraycopy(chars, 0, text, 0, charCount);
+			chars = text;
+		}
+		Atom[] names = new Atom[attrCount];
+		System.arraycopy(attrName, 0, names, 0, attrCount);
+		attrName = names;
+		attrValueStart = grow(attrValueStart, attrCount);
+		attrValueEnd = grow(attrValueEnd, attrCount);
+		return this;
+	} // finish()
+
+	/**
+	 * Adds a node to the arrays and links it as the last child of the current
+	 * element.
+	 *
+	 * @return the new node
+	 */
+	private int add() {
+		if (size == parent.length)
+			growNodes(2 * size);
+		int n = size++;
+		int p = (depth == 0) ? NONE : open[depth - 1];
+		parent[n] = p;
+		firstChild[n] = NONE;
+		nextSibling[n] = NONE;
+		lastChild[n] = NONE;
+		if (p == NONE) {
+			root = n;
+		} else {
+			if (firstChild[p] == NONE)
+				firstChild[p] = n;
+			else
+				nextSibling[lastChild[p]] = n;
+			lastChild[p] = n;
+		}
+		return n;
+	} // add()
+
+	/**
+	 * Appends the span [start, end) of the specified sequence to the shared
+	 * buffer, every whitespace character becoming ' ' as in
+	 * {@code Parser.slice}, and widening the buffer to chars at the first
+	 * character that is not Latin-1.
+	 */
+	private void appendChars(CharSequence src, int start, int end) {
+		int len = end - start;
+		if (chars == null) {
+			for (int i = start; i < end; i++) {
+				if (src.charAt(i) > 0xFF) {
+					chars = new char[Math.max(latin1.length, charCount + len)];
+					for (int j = 0; j < charCount; j++)
+						chars[j] = (char) (latin1[j] & 0xFF);
+					latin1 = null;
+					break;
+				}
+			}
+		}
+		if (chars == null) {
+			if (charCount + len > latin1.length) {
+				byte[] grown = new byte[Math.max(2 * latin1.length, charCount + len)];
+				System.arraycopy(latin1, 0, grown, 0, charCount);
+				latin1 = grown;
+			}
+			for (int i = 0; i < len; i++)
+				latin1[charCount + i] = (byte) space(src.charAt(start + i));
+		} else {
+			if (charCount + len > chars.length) {
+				char[] grown = new char[Math.max(2 * chars.length, charCount + len)];
+				System.arraycopy(chars, 0, grown, 0, charCount);
+				chars = grown;
+			}
+			for (int i = 0; i < len; i++)
+				chars[charCount + i] = space(src.charAt(start + i));
+		}
+		charCount += len;
+	} // appendChars(CharSequence, int, int)
+
+	private static char space(char c) {
+		return Parser.inClass(c, Parser.WHITESPACE) ? ' ' : c;
+	} // space(char)
+
+	private void growNodes(int capacity) {
+		parent = grow(parent, capacity);
+		firstChild = grow(firstChild, capacity);
+		nextSibling = grow(nextSibling, capacity);
+		lastChild = grow(lastChild, capacity);
+		dataStart = grow(dataStart, capacity);
+		dataEnd = grow(dataEnd, capacity);
+		Atom[] tags = new Atom[capacity];
+		System.arraycopy(tag, 0, tags, 0, size);
+		tag = tags;
+	} // growNodes(int)
+
+	private void growAttributes(int capacity) {
+		Atom[] names = new Atom[capacity];
+		System.arraycopy(attrName, 0, names, 0, attrCount);
+		attrName = names;
+		attrValueStart = grow(attrValueStart, capacity);
+		attrValueEnd = grow(attrValueEnd, capacity);
+	} // growAttributes(int)
+
+	/**
+	 * Copies the specified array into a new array of the specified length.
+	 */
+	private static int[] grow(int[] array, int length) {
+		int[] grown = new int[length];
+		System.arraycopy(array, 0, grown, 0, Math.min(array.length, length));
+		return grown;
+	} // grow(int[], int)
+
+} // class CompactDOM
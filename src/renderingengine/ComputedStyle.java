@@ -0,0 +1,438 @@
+package renderingengine;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The values of the properties of a styled node.
+ *
+ * <p> A {@code ComputedStyle} is built in one slot per {@code Property},
+ * indexed by the property's id: a slot holds the {@code Value} of the
+ * declaration that won the cascade, shared with the {@code Stylesheet}, or
+ * the shared {@link Value#UNSET}. {@link #inherit(ComputedStyle)} then
+ * freezes it into two {@code StyleGroup}s, one of the inherited properties,
+ * the font and color, and one of the box model. Groups are immutable and
+ * hash-consed, so equal groups are one object: a node that overrides no
+ * inherited property takes the inherited group of its parent by reference,
+ * and the frozen styles, pairs of groups, are hash-consed as well. On a text
+ * heavy page most nodes share a handful of styles. The tables only hold the
+ * groups and styles weakly, so those of the pages that are gone are dropped.
+ *
+ * <p> The typed accessors read a property as a length, a color or a keyword,
+ * and resolve percentages against a base, so that the layout and the
+ * rendering need no casts.
+ */
+public final class ComputedStyle {
+
+	// +-----------+-------------------------------
+	// | Constants |
+	// +-----------+
+
+	/** The frozen styles, weakly held. */
+	private static final WeakInterner<ComputedStyle> STYLES = new WeakInterner<ComputedStyle>() {
+		@Override
+		ComputedStyle key(ComputedStyle style) {
+			return new ComputedStyle(style.inherited, style.box);
+		}
+	};
+
+	/** The frozen style with every property unset. */
+	public static final ComputedStyle EMPTY =
+			intern(new ComputedStyle(StyleGroup.EMPTY_INHERITED, StyleGroup.EMPTY_BOX));
+
+	// +--------+----------------------------------
+	// | Fields |
+	// +--------+
+	Value[] declared; // the slots, indexed by id, or null once frozen
+	final StyleGroup inherited;
+	final StyleGroup box;
+
+	// +--------------+---------------------------
+	// | Constructors |
+	// +--------------+
+
+	/**
+	 * Constructs a {@code ComputedStyle} with every property unset, to be set
+	 * and then frozen.
+	 */
+	public ComputedStyle() {
+		declared = new Value[Property.COUNT];
+		Arrays.fill(declared, Value.UNSET);
+		inherited = null;
+		box = null;
+	} // ComputedStyle()
+
+	/**
+	 * Constructs a {@code ComputedStyle} with the values of the specified
+	 * style, to be set and then frozen.
+	 *
+	 * @param template a {@code ComputedStyle}
+	 */
+	public ComputedStyle(ComputedStyle template) {
+		if (template.declared != null) {
+			declared = template.declared.clone();
+		} else {
+			declared = new Value[Property.COUNT];
+			for (Property p : Property.VALUES)
+				declared[p.ordinal()] = template.get(p);
+		}
+		inherited = null;
+		box = null;
+	} // ComputedStyle(ComputedStyle)
+
+	private ComputedStyle(StyleGroup inherited, StyleGroup box) {
+		this.declared = null;
+		this.inherited = inherited;
+		this.box = box;
+	} // ComputedStyle(StyleGroup, StyleGroup)
+
+	// +---------+--------------------------------------------------
+	// | Methods |
+	// +---------+
+
+	/**
+	 * Gets the value of the specified property.
+	 *
+	 * @param p a {@code Property}
+	 * @return a {@code Value}, {@code Value.UNSET} if p is not set
+	 */
+	public Value get(Property p) {
+		if (declared != null)
+			return declared[p.ordinal()];
+		return (p.inherited ? inherited : box).values[p.slot];
+	} // get(Property)
+
+	/**
+	 * Checks if the specified property is set.
+	 *
+	 * @param p a {@code Property}
+	 * @return boolean
+	 */
+	public boolean isSet(Property p) {
+		return get(p).exists;
+	} // isSet(Property)
+
+	/**
+	 * Sets the value of the specified property.
+	 *
+	 * @param p a {@code Property}
+	 * @param value a {@code Value}
+	 * @throws IllegalStateException if this style is frozen
+	 */
+	public void set(Property p, Value value) {
+		if (declared == null)
+			throw new IllegalStateException("a frozen style cannot be modified");
+		declared[p.ordinal()] = value;
+	} // set(Property, Value)
+
+	/**
+	 * Checks if this style is frozen, and so may be shared.
+	 *
+	 * @return boolean
+	 */
+	public boolean isFrozen() {
+		return declared == null;
+	} // isFrozen()
+
+	/**
+	 * Gets the frozen style that has the properties set in this style, and
+	 * those of the specified parent for the inherited properties this style
+	 * does not set. The inherited group of the parent is taken as it is when
+	 * no inherited property is overridden.
+	 *
+	 * @param parent a frozen {@code ComputedStyle}, or null for the root
+	 * @return a frozen {@code ComputedStyle}, shared with every equal style
+	 */
+	public ComputedStyle inherit(ComputedStyle parent) {
+		Value[] values = new Value[Property.INHERITED.length];
+		boolean overridden = (parent == null);
+		for (Property p : Property.INHERITED) {
+			Value value = get(p);
+			if (!value.exists && parent != null)
+				value = parent.get(p);
+			else if (parent != null && !value.equals(parent.get(p)))
+				overridden = true;
+			values[p.slot] = value;
+		}
+		StyleGroup inheritedGroup = overridden ? StyleGroup.intern(values, true) : parent.inherited;
+
+		values = new Value[Property.BOX.length];
+		for (Property p : Property.BOX)
+			values[p.slot] = get(p);
+		StyleGroup boxGroup = StyleGroup.intern(values, false);
+
+		if (parent != null && inheritedGroup == parent.inherited && boxGroup == parent.box)
+			return parent;
+		return intern(new ComputedStyle(inheritedGroup, boxGroup));
+	} // inherit(ComputedStyle)
+
+	private static ComputedStyle intern(ComputedStyle style) {
+		return STYLES.intern(style);
+	} // intern(ComputedStyle)
+
+	/**
+	 * Gets the value of the specified property if it is set, else the value of
+	 * backup if it is set, else fallback.
+	 *
+	 * @param p a {@code Property}
+	 * @param backup a {@code Property}
+	 * @param fallback a {@code Value}
+	 * @return a {@code Value}
+	 */
+	public Value lookup(Property p, Property backup, Value fallback) {
+		Value value = get(p);
+		if (value.exists)
+			return value;
+		value = get(backup);
+		return value.exists ? value : fallback;
+	} // lookup(Property, Property, Value)
+
+	/**
+	 * Gets the length of the specified property, a percentage being taken of
+	 * the specified base.
+	 *
+	 * @param p a {@code Property}
+	 * @param base a double, the length that is 100%
+	 * @return a double, 0 if p is not a length
+	 */
+	public double length(Property p, double base) {
+		return resolve(get(p), base);
+	} // length(Property, double)
+
+	/**
+	 * Gets the length of the specified value, a percentage being taken of the
+	 * specified base.
+	 *
+	 * @param value a {@code Value}
+	 * @param base a double, the length that is 100%
+	 * @return a double, 0 if value is not a {@code Length}
+	 */
+	public static double resolve(Value value, double base) {
+		if (!(value instanceof Length))
+			return 0;
+		Length len = (Length) value;
+		return len.isPercent() ? base * len.len / 100 : len.len;
+	} // resolve(Value, double)
+
+	/**
+	 * Gets the color of the specified property.
+	 *
+	 * @param p a {@code Property}
+	 * @return a {@code Color}, {@code Color.NONE} if p is not a color
+	 */
+	public Color color(Property p) {
+		Value value = get(p);
+		return (value instanceof Color) ? (Color) value : Color.NONE;
+	} // color(Property)
+
+	/**
+	 * Gets the keyword of the specified property.
+	 *
+	 * @param p a {@code Property}
+	 * @return an {@code Atom}, {@code Atom.EMPTY} if p is not a keyword
+	 */
+	public Atom keyword(Property p) {
+		Value value = get(p);
+		return (value instanceof Keyword) ? ((Keyword) value).atom : Atom.EMPTY;
+	} // keyword(Property)
+
+	/**
+	 * Frozen styles are equal when they have the same groups; a style that is
+	 * not frozen is only equal to itself.
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof ComputedStyle) || declared != null)
+			return false;
+		ComputedStyle other = (ComputedStyle) obj;
+		return other.declared == null && other.inherited == inherited && other.box == box;
+	} // equals(Object)
+
+	@Override
+	public int hashCode() {
+		if (declared != null)
+			return System.identityHashCode(this);
+		return 31 * System.identityHashCode(inherited) + System.identityHashCode(box);
+	} // hashCode()
+
+	@Override
+	public String toString() {
+		String str = "{";
+		for (Property p : Property.VALUES) {
+			Value value = get(p);
+			if (value.exists)
+				str += (str.length() > 1 ? ", " : "") + p.name + "=" + value;
+		}
+		return str + "}";
+	} // toString()
+
+	/**
+	 * {@code WeakInterner} is a hash-consing table that only holds its objects
+	 * weakly. Each entry is keyed by a copy of its object, equal to it but
+	 * distinct, so that the object itself is collected once nothing else refers
+	 * to it, and its entry is then removed.
+	 *
+	 * @param <T> the type of the objects, which are compared by
+	 *            {@code equals}
+	 */
+	abstract static class WeakInterner<T> {
+		private final ConcurrentHashMap<T, Entry<T>> entries = new ConcurrentHashMap<T, Entry<T>>();
+		private final ReferenceQueue<T> collected = new ReferenceQueue<T>();
+
+		/**
+		 * Makes the key of the specified object: an object equal to it that no
+		 * one else refers to.
+		 *
+		 * @param obj a T
+		 * @return a T
+		 */
+		abstract T key(T obj);
+
+		/**
+		 * Gets the object equal to the specified one, adding it if there is none.
+		 *
+		 * @param obj a T
+		 * @return the T shared by every equal object
+		 */
+		T intern(T obj) {
+			expunge();
+			while (true) {
+				Entry<T> kept = entries.get(obj);
+				T found = (kept == null) ? null : kept.get();
+				if (found != null)
+					return found;
+
+				Entry<T> ref = new Entry<T>(obj, key(obj), collected);
+				if (kept == null ? entries.putIfAbsent(ref.key, ref) == null : entries.replace(ref.key, kept, ref))
+					return obj;
+			}
+		} // intern(T)
+
+		/**
+		 * Gets the number of entries, some of which may have been collected.
+		 *
+		 * @return an int
+		 */
+		int size() {
+			return entries.size();
+		} // size()
+
+		/**
+		 * Removes the entries of the objects that have been collected.
+		 */
+		@SuppressWarnings("unchecked")
+		private void expunge() {
+			Reference<? extends T> ref;
+			while ((ref = collected.poll()) != null)
+				entries.remove(((Entry<T>) ref).key, ref);
+		} // expunge()
+
+		/**
+		 * {@code Entry} is the weak reference of an interned object, which
+		 * remembers its key so that the entry can be removed once the object is
+		 * collected.
+		 */
+		private static final class Entry<T> extends WeakReference<T> {
+			final T key;
+
+			Entry(T obj, T key, ReferenceQueue<T> queue) {
+				super(obj, queue);
+				this.key = key;
+			} // Entry(T, T, ReferenceQueue<T>)
+		} // class Entry
+	} // class WeakInterner
+
+} // class ComputedStyle
+
+/**
+ * {@code StyleGroup} is an immutable group of property values, those of the
+ * inherited properties or those of the box model, indexed by the slot of the
+ * property. Groups are hash-consed by {@link #intern(Value[], boolean)}, so
+ * that equal groups are the same object and are compared by reference; the
+ * table only holds them weakly.
+ */
+final class StyleGroup {
+
+	// +-----------+-------------------------------
+	// | Constants |
+	// +-----------+
+	private static final ComputedStyle.WeakInterner<StyleGroup> GROUPS = new ComputedStyle.WeakInterner<StyleGroup>() {
+		@Override
+		StyleGroup key(StyleGroup group) {
+			return new StyleGroup(group.values, group.inherited);
+		}
+	};
+
+	static final StyleGroup EMPTY_INHERITED = intern(unset(Property.INHERITED.length), true);
+	static final StyleGroup EMPTY_BOX = intern(unset(Property.BOX.length), false);
+
+	// +--------+----------------------------------
+	// | Fields |
+	// +--------+
+	final Value[] values;
+	final boolean inherited; // whether the values are those of the inherited properties
+	final int hash;
+
+	// +--------------+---------------------------
+	// | Constructors |
+	// +--------------+
+
+	private StyleGroup(Value[] values, boolean inherited) {
+		this.values = values;
+		this.inherited = inherited;
+		this.hash = 31 * Arrays.hashCode(values) + (inherited ? 1 : 0);
+	} // StyleGroup(Value[], boolean)
+
+	// +---------+--------------------------------------------------
+	// | Methods |
+	// +---------+
+
+	/**
+	 * Gets the group of the specified values, which must not be modified
+	 * afterwards.
+	 *
+	 * @param values the values, indexed by slot
+	 * @param inherited whether the values are those of the inherited properties
+	 * @return the {@code StyleGroup} shared by every equal group
+	 */
+	static StyleGroup intern(Value[] values, boolean inherited) {
+		if (!inherited && EMPTY_BOX != null && isUnset(values))
+			return EMPTY_BOX;
+		return GROUPS.intern(new StyleGroup(values, inherited));
+	} // intern(Value[], boolean)
+
+	private static Value[] unset(int length) {
+		Value[] values = new Value[length];
+		Arrays.fill(values, Value.UNSET);
+		return values;
+	} // unset(int)
+
+	private static boolean isUnset(Value[] values) {
+		for (Value value : values) {
+			if (value.exists)
+				return false;
+		}
+		return true;
+	} // isUnset(Value[])
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof StyleGroup))
+			return false;
+		StyleGroup other = (StyleGroup) obj;
+		return other.hash == hash && other.inherited == inherited && Arrays.equals(other.values, values);
+	} // equals(Object)
+
+	@Override
+	public int hashCode() {
+		return hash;
+	} // hashCode()
+
+} // class StyleGroup
@@ -1,5 +1,7 @@
 package renderingengine;
 
+import java.util.ArrayList;
+
 /**
  * An {@code ArrayList} implementation of a Document Object Model tree.
  * 
@@ -32,17 +34,26 @@ public class DOM {
 
 	/**
 	 * Prints to console the specified node and its children
-	 * following depth-first preorder traversal.
+	 * following depth-first preorder traversal, each one indent deeper than
+	 * its parent.
 	 * 
 	 * @param n a {@code Node}
 	 * @param prefix a {@code String}
 	 * @param indent a {@code String}
 	 */
 	private void print(Node n, String prefix, String indent) {
-
-		System.out.println(prefix + n.toString());
-		for (Node t : n.children) {
-			print(t, prefix + indent, indent);
+		ArrayList<Node> pending = new ArrayList<Node>();
+		ArrayList<String> prefixes = new ArrayList<String>();
+		pending.add(n);
+		prefixes.add(prefix);
+		while (!pending.isEmpty()) {
+			Node curr = pending.remove(pending.size() - 1);
+			String currPrefix = prefixes.remove(prefixes.size() - 1);
+			System.out.println(currPrefix + curr.toString());
+			for (int i = curr.children.size() - 1; i >= 0; i--) {
+				pending.add(curr.children.get(i));
+				prefixes.add(currPrefix + indent);
+			}
 		}
 	} // print(Node, String, String)
 	
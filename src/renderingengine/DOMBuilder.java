@@ -0,0 +1,182 @@
+package renderingengine;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Builds a {@code DOM} tree from a sequence of parsing events, using an
+ * explicit stack of the elements that are still open.
+ *
+ * <p> As in {@code HTMLParser.parse()}, the first top-level node becomes the
+ * root of the {@code DOM}, and a closing tag with no open element ends the
+ * document.
+ */
+public class DOMBuilder implements TreeSink {
+
+	// +--------+----------------------------------
+	// | Fields |
+	// +--------+
+	Node root;
+	ArrayList<Element> open;
+	boolean done;
+	Atom tagName; // the tag of the element whose attributes are being added, or null
+	HashMap<String, String> attributes; // the attributes of that element
+
+	// +--------------+-------------------------------------------
+	// | Constructors |
+	// +--------------+
+
+	/**
+	 * Constructs a {@code DOMBuilder} with no nodes.
+	 */
+	public DOMBuilder() {
+		root = null;
+		open = new ArrayList<Element>();
+		done = false;
+		tagName = null;
+		attributes = null;
+	} // DOMBuilder()
+
+	// +---------+--------------------------------------------------
+	// | Methods |
+	// +---------+
+
+	/**
+	 * Begins an element with the specified tag name. The {@code Element} is
+	 * created once its attributes are known, by
+	 * {@link #endAttributes(boolean)}.
+	 *
+	 * @param tagName an {@code Atom}
+	 */
+	@Override
+	public void startElement(Atom tagName) {
+		if (done)
+			return;
+		this.tagName = tagName;
+		this.attributes = new HashMap<String, String>();
+	} // startElement(Atom)
+
+	/**
+	 * Adds an attribute to the element being begun.
+	 *
+	 * @param name an {@code Atom}
+	 * @param src a {@code CharSequence}
+	 * @param start an int
+	 * @param end an int
+	 */
+	@Override
+	public void attribute(Atom name, CharSequence src, int start, int end) {
+		if (tagName != null)
+			attributes.put(name.name, Parser.slice(src, start, end));
+	} // attribute(Atom, CharSequence, int, int)
+
+	/**
+	 * Creates the element being begun, adds it as the last child of the current
+	 * element and, if it has children, makes it the current element.
+	 *
+	 * @param open true if the element has children
+	 */
+	@Override
+	public void endAttributes(boolean open) {
+		if (tagName == null)
+			return;
+		Element el = new Element(tagName, attributes);
+		tagName = null;
+		attributes = null;
+		if (open)
+			openElement(el);
+		else
+			append(el);
+	} // endAttributes(boolean)
+
+	/**
+	 * Adds a text node as the last child of the current element.
+	 *
+	 * @param src a {@code CharSequence}
+	 * @param start an int
+	 * @param end an int
+	 */
+	@Override
+	public void text(CharSequence src, int start, int end) {
+		append(new Text(Parser.slice(src, start, end)));
+	} // text(CharSequence, int, int)
+
+	/**
+	 * Adds the specified node as the last child of the current element.
+	 *
+	 * @param n a {@code Node}
+	 */
+	public void append(Node n) {
+		if (done)
+			return;
+		if (open.isEmpty()) {
+			root = n;
+			done = true;
+		} else {
+			open.get(open.size() - 1).children.add(n);
+		}
+	} // append(Node)
+
+	/**
+	 * Adds the specified element as the last child of the current element and
+	 * makes it the current element.
+	 *
+	 * @param el an {@code Element}
+	 */
+	public void openElement(Element el) {
+		if (done)
+			return;
+		if (open.isEmpty())
+			root = el;
+		else
+			open.get(open.size() - 1).children.add(el);
+		open.add(el);
+	} // openElement(Element)
+
+	/**
+	 * Closes the current element. Closing the root, or closing when no element
+	 * is open, ends the document.
+	 */
+	@Override
+	public void closeElement() {
+		if (!open.isEmpty())
+			open.remove(open.size() - 1);
+		if (open.isEmpty())
+			done = true;
+	} // closeElement()
+
+	/**
+	 * Gets the number of open elements.
+	 *
+	 * @return an int
+	 */
+	@Override
+	public int depth() {
+		return open.size();
+	} // depth()
+
+	/**
+	 * Checks if the document has ended, after which nodes are ignored.
+	 *
+	 * @return boolean
+	 */
+	@Override
+	public boolean isDone() {
+		return done;
+	} // isDone()
+
+	/**
+	 * Closes every open element and creates the {@code DOM}.
+	 *
+	 * @return a {@code DOM}
+	 * @throws Exception if no node was added
+	 */
+	public DOM finish() throws Exception {
+		open.clear();
+		done = true;
+		if (root == null)
+			throw new Exception("DOM is empty");
+		return new DOM(root);
+	} // finish()
+
+} // class DOMBuilder
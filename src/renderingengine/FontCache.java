@@ -0,0 +1,106 @@
+package renderingengine;
+
+import java.awt.Font;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A process-wide cache of the fonts of styled text, keyed by the resolved
+ * family, weight, style and size.
+ *
+ * <p> A page has only a handful of distinct fonts, so every text node of
+ * the same font shares one {@code Font}, which also lets the metrics kept
+ * per font be reused. The cache is safe to use from the tasks that style in
+ * parallel: two threads may construct the same font at once, but only one
+ * of the two is ever handed out.
+ */
+public final class FontCache {
+
+	// +-----------+-------------------------------
+	// | Constants |
+	// +-----------+
+
+	/** The font of text whose font cannot be constructed. */
+	static final Font FALLBACK = new Font("Arial", Font.PLAIN, 18);
+
+	private static final ConcurrentHashMap<Key, Font> FONTS = new ConcurrentHashMap<Key, Font>();
+
+	// +--------------+---------------------------
+	// | Constructors |
+	// +--------------+
+
+	private FontCache() {
+	} // FontCache()
+
+	// +---------+--------------------------------------------------
+	// | Methods |
+	// +---------+
+
+	/**
+	 * Gets the font of the specified family and weight, named
+	 * {@code family + " " + weight}, in the specified style and size.
+	 *
+	 * @param family a font family name, such as "Arial"
+	 * @param weight "bold", or "" for a normal weight
+	 * @param style a style of {@code Font}, such as {@code Font.ITALIC}
+	 * @param size a size in points
+	 * @return the {@code Font} shared by every text of this font
+	 */
+	public static Font get(String family, String weight, int style, int size) {
+		Key key = new Key(family, weight, style, size);
+		Font font = FONTS.get(key);
+		if (font == null) {
+			try {
+				font = new Font(family + " " + weight, style, size);
+			} catch (Exception e) {
+				font = FALLBACK;
+			}
+			Font kept = FONTS.putIfAbsent(key, font);
+			if (kept != null)
+				font = kept;
+		}
+		return font;
+	} // get(String, String, int, int)
+
+	/**
+	 * Gets the number of fonts kept.
+	 *
+	 * @return an int
+	 */
+	public static int size() {
+		return FONTS.size();
+	} // size()
+
+	/**
+	 * {@code Key} is the resolved font tuple of an entry.
+	 */
+	static final class Key {
+		final String family;
+		final String weight;
+		final int style;
+		final int size;
+		final int hash;
+
+		Key(String family, String weight, int style, int size) {
+			this.family = family;
+			this.weight = weight;
+			this.style = style;
+			this.size = size;
+			this.hash = 31 * (31 * (31 * family.hashCode() + weight.hashCode()) + style) + size;
+		} // Key(String, String, int, int)
+
+		@Override
+		public int hashCode() {
+			return hash;
+		} // hashCode()
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key))
+				return false;
+			Key other = (Key) obj;
+			return other.hash == hash && other.style == style && other.size == size
+					&& other.family.equals(family) && other.weight.equals(weight);
+		} // equals(Object)
+	} // class Key
+
+} // class FontCache
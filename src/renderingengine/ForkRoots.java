@@ -0,0 +1,123 @@
+package renderingengine;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+
+/**
+ * {@code ForkRoots} finds the subtrees of a tree that are worked on by tasks
+ * of their own in parallel mode, such as the nodes of a {@code StyleTree} or
+ * the boxes of a {@code LayoutTree}. A subtree is large if it has at least
+ * {@code PARALLEL_THRESHOLD} nodes, and the large children of a node are
+ * forked if the tree's policy forks that node and the node is in fewer than
+ * {@code MAX_FORK_DEPTH} forked subtrees, so the tasks nest no deeper than
+ * that.
+ *
+ * @param <T> the type of the nodes of the tree
+ */
+abstract class ForkRoots<T> {
+
+	// +-----------+-------------------------------
+	// | Constants |
+	// +-----------+
+
+	/** The number of nodes from which a subtree is worked on by its own task */
+	static final int PARALLEL_THRESHOLD = 512;
+
+	/** The largest number of tasks a node is nested in, below the task of the root */
+	static final int MAX_FORK_DEPTH = 8;
+
+	// +---------+--------------------------------------------------
+	// | Methods |
+	// +---------+
+
+	/**
+	 * Gets the children of the specified node.
+	 *
+	 * @param node a node of the tree
+	 * @return an {@code ArrayList} of nodes
+	 */
+	abstract ArrayList<T> children(T node);
+
+	/**
+	 * Tests if the large children of the specified node are to be forked.
+	 *
+	 * @param node a node of the tree
+	 * @param large the number of its children that are large
+	 * @return boolean
+	 */
+	abstract boolean forks(T node, int large);
+
+	/**
+	 * Finds the subtrees to fork below the specified root.
+	 *
+	 * @param root a node
+	 * @return an {@code IdentityHashMap} from the root of each subtree to fork
+	 *         to the number of tasks it is in
+	 */
+	IdentityHashMap<T, Integer> find(T root) {
+		IdentityHashMap<T, Integer> large = largeSubtrees(root);
+		IdentityHashMap<T, Integer> forks = new IdentityHashMap<T, Integer>();
+		ArrayList<T> pending = new ArrayList<T>(); // large nodes to visit
+		ArrayList<Integer> depths = new ArrayList<Integer>(); // the number of forked subtrees each is in
+		if (large.containsKey(root)) {
+			pending.add(root);
+			depths.add(0);
+		}
+
+		while (!pending.isEmpty()) {
+			T curr = pending.remove(pending.size() - 1);
+			int depth = depths.remove(depths.size() - 1);
+			int count = 0;
+			for (T child : children(curr)) {
+				if (large.containsKey(child))
+					count++;
+			}
+			boolean fork = depth < MAX_FORK_DEPTH && forks(curr, count);
+			for (T child : children(curr)) {
+				if (!large.containsKey(child))
+					continue;
+				if (fork)
+					forks.put(child, depth + 1);
+				pending.add(child);
+				depths.add(fork ? depth + 1 : depth);
+			}
+		}
+		return forks;
+	} // find(T)
+
+	/**
+	 * Finds the subtrees of at least {@code PARALLEL_THRESHOLD} nodes, counting
+	 * their sizes in postorder.
+	 *
+	 * @param root a node
+	 * @return an {@code IdentityHashMap} from the root of each large subtree to
+	 *         its number of nodes
+	 */
+	IdentityHashMap<T, Integer> largeSubtrees(T root) {
+		IdentityHashMap<T, Integer> large = new IdentityHashMap<T, Integer>();
+		ArrayList<T> pending = new ArrayList<T>(); // null marks the exit of a node
+		ArrayList<T> path = new ArrayList<T>();
+		ArrayList<Integer> entered = new ArrayList<Integer>(); // number of nodes seen when each node of path was entered
+		int count = 0;
+		pending.add(root);
+
+		while (!pending.isEmpty()) {
+			T curr = pending.remove(pending.size() - 1);
+			if (curr == null) {
+				T done = path.remove(path.size() - 1);
+				int size = count - entered.remove(entered.size() - 1);
+				if (size >= PARALLEL_THRESHOLD)
+					large.put(done, size);
+				continue;
+			}
+			path.add(curr);
+			entered.add(count++);
+			pending.add(null);
+			ArrayList<T> children = children(curr);
+			for (int i = children.size() - 1; i >= 0; i--)
+				pending.add(children.get(i));
+		}
+		return large;
+	} // largeSubtrees(T)
+
+} // class ForkRoots
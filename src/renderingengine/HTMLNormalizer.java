@@ -0,0 +1,381 @@
+package renderingengine;
+
+import java.io.File;
+
+/**
+ * A single-pass normalizer for HTML strings, used by {@code HTMLParser} before
+ * it builds the {@code DOM}.
+ *
+ * <p> {@code HTMLNormalizer} produces the same string as the chain of regular
+ * expressions in {@link #regexNormalize(String)}, but reads every character of
+ * the document only once. Each rewriting step is a small state machine that
+ * holds back the few characters it might still rewrite and passes everything
+ * else on to the next step:
+ * <ol>
+ * <li>runs of whitespace become a single space,</li>
+ * <li>" = " becomes "=",</li>
+ * <li>"&gt; &lt;" becomes "&gt;&lt;",</li>
+ * <li>comments are removed,</li>
+ * <li>the spaces around a {@code <br>} tag are removed, the tag itself being
+ * kept as a void element that the layout breaks the line at.</li>
+ * </ol>
+ * The steps that need the whole document (removing the head and adding the
+ * missing {@code <html>} tags) are done by {@link #normalize(CharSequence)}
+ * once the input has been read.
+ */
+public class HTMLNormalizer {
+
+	// +--------+----------------------------------
+	// | Fields |
+	// +--------+
+	StringBuilder out;
+
+	boolean pendingSpace; // whitespace step: a run of whitespace was read
+	int equalsState; // " = " step: 0 nothing held, 1 holds " ", 2 holds " ="
+	int tagGapState; // "> <" step: 0 nothing, 1 after '>', 2 holds the space after '>'
+	int commentPrefix; // comment step: number of characters of "<!--" held
+	boolean inComment; // comment step: a comment is being read
+	int commentDashes; // comment step: number of '-' just read, up to 2, so "-->" ends the comment
+	StringBuilder comment; // comment step: the comment read so far, to keep it if it is not terminated, or null
+	int breakSpaces; // break step: number of spaces held before a possible "<br>"
+	int breakPrefix; // break step: number of characters of "<br>" held
+	boolean afterBreak; // break step: spaces following a "<br>" are dropped
+
+	// +--------------+---------------------------
+	// | Constructors |
+	// +--------------+
+
+	/**
+	 * Constructs a {@code HTMLNormalizer} with an empty output.
+	 *
+	 * @param capacity the initial capacity of the output
+	 */
+	public HTMLNormalizer(int capacity) {
+		this(capacity, true);
+	} // HTMLNormalizer(int)
+
+	/**
+	 * Constructs a {@code HTMLNormalizer} with an empty output, which may drop
+	 * a comment that is not terminated by the end of the input instead of
+	 * holding every comment until it ends.
+	 *
+	 * @param capacity the initial capacity of the output
+	 * @param keepUnterminated true to keep an unterminated comment, as the
+	 *            regular expressions do
+	 */
+	HTMLNormalizer(int capacity, boolean keepUnterminated) {
+		out = new StringBuilder(capacity);
+		comment = keepUnterminated ? new StringBuilder() : null;
+	} // HTMLNormalizer(int, boolean)
+
+	// +---------+--------------------------------------------------
+	// | Methods |
+	// +---------+
+
+	/**
+	 * Normalizes the specified html string.
+	 *
+	 * @param html a {@code CharSequence}
+	 * @return the normalized html string
+	 */
+	public static String normalize(CharSequence html) {
+		HTMLNormalizer normalizer = new HTMLNormalizer(html.length() + 16);
+		normalizer.append(html, 0, html.length());
+		normalizer.flush();
+		StringBuilder out = normalizer.out;
+
+		if (out.indexOf("<html>") < 0) {
+			removeHead(out);
+			out.insert(0, "<html>");
+		}
+		if (out.indexOf("</html>") < 0)
+			out.append("</html>");
+		return out.toString();
+	} // normalize(CharSequence)
+
+	/**
+	 * Feeds the characters of the span [start, end) of the specified sequence
+	 * through the normalizer.
+	 *
+	 * @param src a {@code CharSequence}
+	 * @param start an int
+	 * @param end an int
+	 */
+	public void append(CharSequence src, int start, int end) {
+		for (int i = start; i < end; i++) {
+			char c = src.charAt(i);
+			if (c == ' ' || c == '\n' || c == '\t' || c == '\r' || c == '\f' || c == '\u000B') {
+				pendingSpace = true;
+			} else {
+				if (pendingSpace) {
+					pendingSpace = false;
+					equalsStep(' ');
+				}
+				equalsStep(c);
+			}
+		}
+	} // append(CharSequence, int, int)
+
+	/**
+	 * Feeds the characters of the span [start, end) of the specified array
+	 * through the normalizer.
+	 *
+	 * @param src a char array
+	 * @param start an int
+	 * @param end an int
+	 */
+	public void append(char[] src, int start, int end) {
+		append(java.nio.CharBuffer.wrap(src), start, end);
+	} // append(char[], int, int)
+
+	/**
+	 * Releases every character still held back by the normalizer, as
+	 * happens at the end of the input.
+	 */
+	public void flush() {
+		if (pendingSpace) {
+			pendingSpace = false;
+			equalsStep(' ');
+		}
+		if (equalsState >= 1)
+			tagGapStep(' ');
+		if (equalsState == 2)
+			tagGapStep('=');
+		equalsState = 0;
+		if (tagGapState == 2)
+			commentStep(' ');
+		tagGapState = 0;
+		if (inComment) { // an unterminated comment is kept, if it was held
+			inComment = false;
+			if (comment != null) {
+				for (int i = 0; i < comment.length(); i++)
+					breakStep(comment.charAt(i));
+				comment.setLength(0);
+			}
+		}
+		releaseCommentPrefix();
+		releaseBreak();
+		afterBreak = false;
+	} // flush()
+
+	/**
+	 * Rewrites " = " into "=".
+	 */
+	private void equalsStep(char c) {
+		if (equalsState == 1 && c == '=') {
+			equalsState = 2;
+			return;
+		}
+		if (equalsState == 2 && c == ' ') {
+			equalsState = 0;
+			tagGapStep('=');
+			return;
+		}
+		if (equalsState >= 1)
+			tagGapStep(' ');
+		if (equalsState == 2)
+			tagGapStep('=');
+		equalsState = 0;
+
+		if (c == ' ')
+			equalsState = 1;
+		else
+			tagGapStep(c);
+	} // equalsStep(char)
+
+	/**
+	 * Rewrites "&gt; &lt;" into "&gt;&lt;".
+	 */
+	private void tagGapStep(char c) {
+		if (tagGapState == 1 && c == ' ') {
+			tagGapState = 2;
+			return;
+		}
+		if (tagGapState == 2 && c != '<')
+			commentStep(' ');
+		tagGapState = (c == '>') ? 1 : 0;
+		commentStep(c);
+	} // tagGapStep(char)
+
+	/**
+	 * Removes comments.
+	 */
+	private void commentStep(char c) {
+		if (inComment) {
+			if (comment != null)
+				comment.append(c);
+			if (c == '>' && commentDashes == 2) {
+				inComment = false;
+				if (comment != null)
+					comment.setLength(0);
+			} else
+				commentDashes = (c == '-') ? Math.min(commentDashes + 1, 2) : 0;
+			return;
+		}
+		if (c == "<!--".charAt(commentPrefix)) {
+			commentPrefix++;
+			if (commentPrefix == 4) {
+				commentPrefix = 0;
+				inComment = true;
+				commentDashes = 2; // "<!-->" is a whole comment
+				if (comment != null)
+					comment.append("<!--");
+			}
+			return;
+		}
+		releaseCommentPrefix();
+		if (c == '<')
+			commentPrefix = 1;
+		else
+			breakStep(c);
+	} // commentStep(char)
+
+	/**
+	 * Passes on the characters of "&lt;!--" held by the comment step.
+	 */
+	private void releaseCommentPrefix() {
+		for (int i = 0; i < commentPrefix; i++)
+			breakStep("<!--".charAt(i));
+		commentPrefix = 0;
+	} // releaseCommentPrefix()
+
+	/**
+	 * Removes the spaces around a {@code <br>} tag.
+	 */
+	private void breakStep(char c) {
+		if (afterBreak) {
+			if (c == ' ')
+				return;
+			afterBreak = false;
+		}
+		if (breakPrefix > 0 && c == "<br>".charAt(breakPrefix)) {
+			breakPrefix++;
+			if (breakPrefix == 4) {
+				breakPrefix = 0;
+				breakSpaces = 0;
+				for (int i = 0; i < 4; i++)
+					emit("<br>".charAt(i));
+				afterBreak = true;
+			}
+			return;
+		}
+		if (breakPrefix > 0)
+			releaseBreak();
+
+		if (c == ' ')
+			breakSpaces++;
+		else if (c == '<')
+			breakPrefix = 1;
+		else {
+			releaseBreak();
+			emit(c);
+		}
+	} // breakStep(char)
+
+	/**
+	 * Passes on the spaces and the characters of "&lt;br&gt;" held by the
+	 * break step.
+	 */
+	private void releaseBreak() {
+		for (; breakSpaces > 0; breakSpaces--)
+			emit(' ');
+		for (int i = 0; i < breakPrefix; i++)
+			emit("<br>".charAt(i));
+		breakPrefix = 0;
+	} // releaseBreak()
+
+	/**
+	 * Receives the normalized characters, in order. The characters are
+	 * appended to {@code out}; subclasses can consume them directly instead.
+	 *
+	 * @param c a char
+	 */
+	void emit(char c) {
+		out.append(c);
+	} // emit(char)
+
+	/**
+	 * Removes the first head element of the specified html string, matching
+	 * the regular expression {@code <head>.+</head>}.
+	 *
+	 * @param html a {@code StringBuilder}
+	 */
+	static void removeHead(StringBuilder html) {
+		int head = html.indexOf("<head>");
+		while (head >= 0) {
+			int lineEnd = head + 6;
+			while (lineEnd < html.length() && !isLineTerminator(html.charAt(lineEnd)))
+				lineEnd++;
+			int end = html.lastIndexOf("</head>", lineEnd - 7);
+			if (end >= head + 7) {
+				html.delete(head, end + 7);
+				return;
+			}
+			head = html.indexOf("<head>", head + 1);
+		}
+	} // removeHead(StringBuilder)
+
+	/**
+	 * Checks if the specified character ends a line for the '.' of a regular
+	 * expression.
+	 *
+	 * @param c a char
+	 * @return boolean
+	 */
+	static boolean isLineTerminator(char c) {
+		return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+	} // isLineTerminator(char)
+
+	/**
+	 * Normalizes the specified html string with a chain of regular expressions.
+	 * This is the reference for {@link #normalize(CharSequence)}.
+	 *
+	 * @param input an html string
+	 * @return the normalized html string
+	 */
+	public static String regexNormalize(String input) {
+		input = input.replaceAll("\\s+", " ");
+		input = input.replaceAll("(\\s+)=(\\s+)", "=");
+		input = input.replaceAll(">(\\s+)<", "><");
+		input = input.replaceAll("(?=<!--)([\\s\\S]*?)-->", "");
+		input = input.replaceAll("\\s*<br>\\s*", "<br>");
+		if (!input.contains("<html>")) {
+			input = input.replaceFirst("<head>.+</head>", "");
+			input = "<html>" + input;
+		}
+		if (!input.contains("</html>"))
+			input += "</html>";
+		return input;
+	} // regexNormalize(String)
+
+	/**
+	 * Compares the running time of {@link #normalize(CharSequence)} with the
+	 * chain of regular expressions on a local html file, and checks that both
+	 * produce the same string.
+	 *
+	 * @param args the path of an html file, and optionally the number of rounds
+	 * @throws Exception if the file cannot be read
+	 */
+	public static void main(String[] args) throws Exception {
+		String html = Main.fileToString(new File(args[0]));
+		int rounds = (args.length > 1) ? Integer.parseInt(args[1]) : 10;
+
+		if (!normalize(html).equals(regexNormalize(html))) {
+			System.out.println("Normalized strings differ.");
+			System.exit(1);
+		}
+		long regexTime = 0, singleTime = 0;
+		for (int i = 0; i < rounds; i++) {
+			long start = System.nanoTime();
+			regexNormalize(html);
+			long middle = System.nanoTime();
+			normalize(html);
+			singleTime += System.nanoTime() - middle;
+			regexTime += middle - start;
+		}
+		System.out.println("chars: " + html.length());
+		System.out.println("regex chain: " + regexTime / rounds / 1000 + " us");
+		System.out.println("single pass: " + singleTime / rounds / 1000 + " us");
+	} // main(String[])
+
+} // class HTMLNormalizer
@@ -1,10 +1,12 @@
 package renderingengine;
 
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Scanner;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
 
 /**
  * An extended version of the HTML parser component of the
@@ -25,19 +27,9 @@ public class HTMLParser extends Parser {
 	// +-------+
 
 	DOM dom;
+	CompactDOM compactDom;
 
-	static ArrayList<String> SingletonTags = new ArrayList<String>();
-	static {
-		Scanner scr;
-		try {
-			scr = new Scanner(new File("./singletontags.txt"));
-			while (scr.hasNext())
-				SingletonTags.add(scr.next());
-			scr.close();
-		} catch (FileNotFoundException e) {
-			System.out.println("File " + "singletontags.txt" + " not found at expected path.");
-		}
-	}
+	static final int BUFFER_SIZE = 8192;
 
 	// +--------------+-------------------------------------------
 	// | Constructors |
@@ -47,136 +39,229 @@ public class HTMLParser extends Parser {
 	 * Constructs a {@code HTMLParser} that produces a Document-Object-Model from
 	 * specified string representation of an HTML file.
 	 * 
-	 * @param input an html string
+	 * @param input an html string, or the {@code CharBuffer} of an html file
 	 * @throws Exception
 	 */
-	public HTMLParser(String input) throws Exception {
+	public HTMLParser(CharSequence input) throws Exception {
 		super(input);
 		this.dom = parse();
-	} // HTML(String)
+	} // HTMLParser(CharSequence)
+
+	/**
+	 * Constructs a {@code HTMLParser} that produces either a Document-Object-Model
+	 * or, if compact is true, a {@code CompactDOM} from the specified string
+	 * representation of an HTML file.
+	 * 
+	 * @param input an html string, or the {@code CharBuffer} of an html file
+	 * @param compact true to fill {@code compactDom} instead of {@code dom}
+	 * @throws Exception if the DOM is empty
+	 */
+	public HTMLParser(CharSequence input, boolean compact) throws Exception {
+		super(input);
+		if (compact) {
+			CompactDOM sink = new CompactDOM();
+			parse(sink);
+			this.compactDom = sink.finish();
+		} else {
+			this.dom = parse();
+		}
+	} // HTMLParser(CharSequence, boolean)
+
+	/**
+	 * Constructs a {@code HTMLParser} that produces a Document-Object-Model from
+	 * the html read from the specified {@code Reader}. The input is read in
+	 * chunks and the {@code DOM} is built while reading, so parsing overlaps the
+	 * I/O and only the current chunk and token are held in memory.
+	 * 
+	 * @param reader a {@code Reader}
+	 * @throws Exception if the input cannot be read or the DOM is empty
+	 * @see HTMLTokenizer
+	 */
+	public HTMLParser(Reader reader) throws Exception {
+		super();
+		DOMBuilder builder = new DOMBuilder();
+		HTMLTokenizer tokenizer = new HTMLTokenizer(builder);
+		char[] buffer = new char[BUFFER_SIZE];
+		int n;
+		while ((n = reader.read(buffer, 0, BUFFER_SIZE)) >= 0) {
+			tokenizer.append(buffer, 0, n);
+		}
+		tokenizer.flush();
+		this.dom = builder.finish();
+	} // HTMLParser(Reader)
+
+	/**
+	 * Constructs a {@code HTMLParser} that produces a Document-Object-Model from
+	 * the html read from the specified channel and decoded with the specified
+	 * charset. The input is read in chunks and the {@code DOM} is built while
+	 * reading.
+	 * 
+	 * @param channel a {@code ReadableByteChannel}
+	 * @param charset a {@code Charset}
+	 * @throws Exception if the input cannot be read or the DOM is empty
+	 */
+	public HTMLParser(ReadableByteChannel channel, Charset charset) throws Exception {
+		super();
+		DOMBuilder builder = new DOMBuilder();
+		HTMLTokenizer tokenizer = new HTMLTokenizer(builder);
+		CharsetDecoder decoder = charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		ByteBuffer bytes = ByteBuffer.allocate(BUFFER_SIZE);
+		CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+		boolean eof = false;
+		while (!eof) {
+			eof = channel.read(bytes) < 0;
+			bytes.flip();
+			decoder.decode(bytes, chars, eof);
+			if (eof)
+				decoder.flush(chars);
+			bytes.compact();
+			chars.flip();
+			tokenizer.append(chars, 0, chars.remaining());
+			chars.clear();
+		}
+		tokenizer.flush();
+		this.dom = builder.finish();
+	} // HTMLParser(ReadableByteChannel, Charset)
 
 	// +---------+--------------------------------------------------
 	// | Methods |
 	// +---------+
 
 	/**
-	 * Creates a DOM object tree of the html string input
+	 * Creates a DOM object tree of the html string input.
+	 * 
+	 * <p> The tree is built with an explicit stack of open elements, so the
+	 * depth of the document is bounded only by the heap; the passes that style,
+	 * lay out and render it keep their own stacks for the same reason. As
+	 * before, the first top-level node is the root, a closing tag closes the
+	 * current element whatever its name, and a closing tag at the top level
+	 * ends parsing. The content of a raw text element, such as
+	 * {@code <script>}, is a single text node up to its closing tag.
 	 * 
 	 * @return a DOM object
-	 * @throws Exception
+	 * @throws Exception if the html string has no nodes
+	 * @see DOMBuilder
 	 */
 	public DOM parse() throws Exception {
-		ArrayList<Node> nodes = parseNodes();
-		if (nodes.size() == 0)
-			throw new Exception("DOM is empty");
-
-		return new DOM(nodes.get(0));
-
+		DOMBuilder builder = new DOMBuilder();
+		parse(builder);
+		return builder.finish();
 	} // parse()
 
 	/**
-	 * Creates an array implementation of the DOM tree
+	 * Passes the nodes of the html string input, in document order, to the
+	 * specified sink. Names are passed as atoms and text and attribute values
+	 * as spans of input, so no node is created here.
 	 * 
-	 * @return an array implementation of a tree
+	 * @param builder a {@code TreeSink}
 	 */
-	public ArrayList<Node> parseNodes() {
-		ArrayList<Node> nodes = new ArrayList<Node>();
+	void parse(TreeSink builder) {
 		consumeWhiteSpace();
-		while (!eof() && !beginsWith("</")) {
-			Node n = parseNode();
-			if (n != null)
-				nodes.add(n);
-			// consumeWhiteSpace();
-
+		while (!eof() && !builder.isDone()) {
+			if (beginsWith("</")) {
+				if (builder.depth() == 0)
+					break;
+				currPos += 2; // skip </
+				parseName();
+				currPos++; // skip >
+				builder.closeElement();
+			} else if (input.charAt(currPos) == '<') {
+				Atom tagName = parseElement(builder);
+				if (!isSingleTagElement(tagName)) {
+					consumeWhiteSpace();
+					if (TagRegistry.isRawText(tagName))
+						parseRawText(tagName, builder);
+				}
+			} else {
+				parseText(builder);
+			}
 		}
-		return nodes;
-	} // parseNodes()
+	} // parse(TreeSink)
 
 	/**
-	 * Creates a complete Node and its corresponding children starting from currpos
+	 * Passes the opening tag at currpos and its attributes to the specified
+	 * sink. The children of the element are passed by {@link #parse(TreeSink)}.
 	 * 
-	 * @return a Node
+	 * @param builder a {@code TreeSink}
+	 * @return the tag name of the element
 	 */
-	public Node parseNode() {
-		if (input.charAt(currPos) == '<') {
-			return parseElement();
-		} else
-			return parseText();
-	} // parseNode()
-
-	/**
-	 * Creates an Element Node along with its corresponding children
-	 * 
-	 * @return an Element object
-	 */
-	public Element parseElement() {
+	public Atom parseElement(TreeSink builder) {
 		currPos++; // skip opening tag
 
-		String tagName = parseName();
-		tagName = tagName.toLowerCase();
+		Atom tagName = parseAtom();
+		builder.startElement(tagName);
 		consumeWhiteSpace();
-		HashMap<String, String> attributes = parseAttributes();
+		parseAttributes(builder);
 
 		currPos++; // skip ending tag
-		// first check if tagName corresponds to a single tag element
-		if (isSingleTagElement(tagName)) {
-			return new Element(new ArrayList<Node>(), tagName, attributes);
-		} else {
-			ArrayList<Node> children = parseNodes();
-			currPos += 2; // skip </
-			parseName();
-			currPos++; // skip >
-			return new Element(children, tagName, attributes);
-		}
-	} // parseElement()
+		builder.endAttributes(!isSingleTagElement(tagName));
+		return tagName;
+	} // parseElement(TreeSink)
 
 	/**
 	 * Checks if a html tag name corresponds to an html single tag
 	 * 
-	 * @param tagName a String
-	 * @return true if and only if the specified string corresponds to a single tag
-	 * 
+	 * @param tagName an {@code Atom}
+	 * @return true if and only if the specified name corresponds to a single tag
+	 * @see TagRegistry
 	 */
-	public boolean isSingleTagElement(String tagName) {
-		return SingletonTags.contains(tagName);
-
-	} // isSingleTagElement(String)
+	public boolean isSingleTagElement(Atom tagName) {
+		return TagRegistry.isVoid(tagName);
+	} // isSingleTagElement(Atom)
 
 	/**
-	 * Retrieves the attributes of an html tag found in its opening tag
+	 * Passes the attributes of an html tag found in its opening tag to the
+	 * specified sink, each value being a span of input
 	 * 
-	 * @return a HashMap where the keys are attributes and the values are the
-	 *         corresponding attribute-values
+	 * @param builder a {@code TreeSink}
 	 */
-	public HashMap<String, String> parseAttributes() {
-		HashMap<String, String> attributes = new HashMap<String, String>();
+	public void parseAttributes(TreeSink builder) {
 		char curr = input.charAt(currPos);
 		while (curr != '>') {
 			consumeWhiteSpace();
-			String attrName = parseName();
-			attrName = attrName.toLowerCase();
+			Atom attrName = parseAtom();
 			consumeWhiteSpace();
 			currPos++; // skip =
 			consumeWhiteSpace();
-			String value = parseAttrValue();
+			int start = currPos;
+			int end = skipAttrValue();
+			builder.attribute(attrName, input, start, end);
 			currPos++;
 			consumeWhiteSpace();
-			attributes.put(attrName, value);
 			curr = input.charAt(currPos);
 			if (curr == ',')
 				currPos++;
 		}
-		return attributes;
-	} // parseAttributes()
+	} // parseAttributes(TreeSink)
 
 	/**
-	 * Constructs a Text Node
+	 * Passes the text at currpos, up to the next tag, to the specified sink
 	 * 
-	 * @return a Text object
+	 * @param builder a {@code TreeSink}
 	 */
-	public Text parseText() {
-		return new Text(consumeWhile(c -> c != '<'));
-	} // parseText()
+	public void parseText(TreeSink builder) {
+		int start = currPos;
+		builder.text(input, start, skipUntil('<'));
+	} // parseText(TreeSink)
+
+	/**
+	 * Passes the content of a raw text element to the specified sink, as one
+	 * text node which runs up to the next closing tag of that element, or to
+	 * the end of input. Nothing is passed if the content is empty.
+	 * 
+	 * @param tagName the {@code Atom} of the raw text element
+	 * @param builder a {@code TreeSink}
+	 */
+	public void parseRawText(Atom tagName, TreeSink builder) {
+		int start = currPos;
+		int end = input.indexOf("</", start);
+		while (end >= 0 && !input.regionMatches(true, end + 2, tagName.name, 0, tagName.name.length()))
+			end = input.indexOf("</", end + 2);
+		currPos = (end < 0) ? input.length() : end;
+		if (currPos > start)
+			builder.text(input, start, currPos);
+	} // parseRawText(Atom, TreeSink)
 
 	/**
 	 * Parses a name in the input field
@@ -184,45 +269,44 @@ public class HTMLParser extends Parser {
 	 * @return a String
 	 */
 	public String parseName() {
-		return consumeWhile(c -> Character.isLetterOrDigit(c));
+		return consumeWhile(LETTER_OR_DIGIT);
 	} // parseName()
 
 	/**
-	 * Retrieves the value assignment to an attribute within an html tag
+	 * Parses a tag or attribute name in the input field, in lower case
 	 * 
-	 * @return a String
+	 * @return an {@code Atom}
 	 */
-	public String parseAttrValue() {
+	public Atom parseAtom() {
+		return consumeAtom(LETTER_OR_DIGIT, true);
+	} // parseAtom()
+
+	/**
+	 * Moves currpos past the value assignment to an attribute within an html
+	 * tag. A quoted value keeps its quotes.
+	 * 
+	 * @return the end of the value, whose start is the currpos before the call
+	 */
+	public int skipAttrValue() {
 		char open = input.charAt(currPos);
 		if ((open == '"') | (open == '\'')) {
 			currPos++;
-			return open + consumeWhile(c -> c != open) + open;
+			return Math.min(skipUntil(open) + 1, input.length());
 		} else {
-			return consumeWhile(c -> !Character.isWhitespace(c));
+			return skipUntilClass(WHITESPACE);
 		}
 
-	} // parseAttrValue()
+	} // skipAttrValue()
 
 	/**
-	 * Removes the comments from an html string
+	 * Removes the comments from an html string and normalizes its whitespace
+	 * in a single pass.
+	 * 
+	 * @see HTMLNormalizer
 	 */
 	@Override
-	public void clean() {
-
-		input = input.replaceAll("\\s+", " ");
-		input = input.replaceAll("(\\s+)=(\\s+)", "=");
-		input = input.replaceAll(">(\\s+)<", "><");
-		input = input.replaceAll("(?=<!--)([\\s\\S]*?)-->", "");
-
-		input = input.replaceAll("\\s*<br>\\s*", "BREAKLIEN"); // purposely spelt wrong to avoid collision with content
-		// input = html.replaceAll("<head>.*</head>", "");
-		if (!input.contains("<html>"))
-			{
-				input = input.replaceFirst("<head>.+</head>","");
-				input = "<html>" + input;
-			}
-		if (!input.contains("</html>"))
-			input += "</html>";
-	} // clean()
+	public String clean(CharSequence raw) {
+		return HTMLNormalizer.normalize(raw);
+	} // clean(CharSequence)
 
 } // Class HTMLParser
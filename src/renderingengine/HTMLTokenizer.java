@@ -0,0 +1,345 @@
+package renderingengine;
+
+import java.util.Arrays;
+
+/**
+ * An incremental tokenizer for HTML, used by {@code HTMLParser} when it reads
+ * its input from a {@code Reader} or a {@code ReadableByteChannel}.
+ *
+ * <p> {@code HTMLTokenizer} receives the normalized characters of its
+ * superclass one at a time, recognizes text, opening tags and closing tags,
+ * and passes each of them to a {@code TreeSink} as soon as it is complete.
+ * Only the token being read is held in memory, so the input can be fed in
+ * chunks of any size as they arrive.
+ *
+ * <p> The steps of {@code HTMLNormalizer} that need the whole document are
+ * replaced by their incremental counterparts: if the first element is not
+ * {@code <html>}, an {@code html} root is added and a {@code head} element
+ * directly under it is dropped. A comment is not held while it is read,
+ * only the number of '-' just read, so a comment that is not terminated by
+ * the end of the input is dropped, where {@code HTMLNormalizer.normalize}
+ * keeps it. Declarations such as {@code <!DOCTYPE html>} are skipped, and the
+ * content of a raw text element is read as text up to its closing tag.
+ */
+public class HTMLTokenizer extends HTMLNormalizer {
+
+	// +-----------+-------------------------------
+	// | Constants |
+	// +-----------+
+	static final int DATA = 0;
+	static final int TAG_OPEN = 1;
+	static final int TAG_NAME = 2;
+	static final int CLOSE_TAG = 3;
+	static final int DECLARATION = 4;
+	static final int BEFORE_ATTR_NAME = 5;
+	static final int ATTR_NAME = 6;
+	static final int AFTER_ATTR_NAME = 7;
+	static final int BEFORE_ATTR_VALUE = 8;
+	static final int ATTR_VALUE_QUOTED = 9;
+	static final int ATTR_VALUE_UNQUOTED = 10;
+	static final int RAW_TEXT = 11;
+
+	// +--------+----------------------------------
+	// | Fields |
+	// +--------+
+	TreeSink builder;
+	int state;
+	StringBuilder token; // text, tag name or attribute value being read
+	Atom tagName;
+	Atom rawTextTag; // the raw text element whose content is being read
+	Atom attrName;
+	char quote;
+	StringBuilder values; // the values of the attributes of the tag being read, one after another
+	Atom[] attrNames; // the names of the attributes of the tag being read
+	int[] attrEnds; // the end of the value of each of them in values
+	int attrCount;
+	boolean skipLeadingSpace; // whitespace at the start of a child list is dropped
+	boolean started; // the first node has been read
+	boolean synthesizedRoot; // the html root was added by the tokenizer
+	int skipDepth; // number of open elements of a dropped head element
+
+	// +--------------+-------------------------------------------
+	// | Constructors |
+	// +--------------+
+
+	/**
+	 * Constructs a {@code HTMLTokenizer} that passes the nodes it reads to the
+	 * specified {@code DOMBuilder} or {@code CompactDOM}.
+	 *
+	 * @param builder a {@code TreeSink}
+	 */
+	HTMLTokenizer(TreeSink builder) {
+		super(0, false);
+		this.builder = builder;
+		this.state = DATA;
+		this.token = new StringBuilder();
+		this.values = new StringBuilder();
+		this.attrNames = new Atom[8];
+		this.attrEnds = new int[8];
+		this.skipLeadingSpace = true;
+	} // HTMLTokenizer(TreeSink)
+
+	// +---------+--------------------------------------------------
+	// | Methods |
+	// +---------+
+
+	/**
+	 * Releases the characters held back by the normalizer and ends the text
+	 * being read. A tag that is not closed by the end of the input is dropped.
+	 */
+	@Override
+	public void flush() {
+		super.flush();
+		if (state == DATA || state == RAW_TEXT)
+			endText();
+		state = DATA;
+	} // flush()
+
+	@Override
+	void emit(char c) {
+		switch (state) {
+		case DATA:
+			if (c == '<') {
+				endText();
+				state = TAG_OPEN;
+			} else if (!(skipLeadingSpace && Parser.inClass(c, Parser.WHITESPACE))) {
+				skipLeadingSpace = false;
+				token.append(c);
+			}
+			break;
+
+		case TAG_OPEN:
+			if (c == '/') {
+				state = CLOSE_TAG;
+			} else if (c == '!') {
+				state = DECLARATION;
+			} else if (Parser.inClass(c, Parser.LETTER_OR_DIGIT)) {
+				token.append(c);
+				attrCount = 0;
+				values.setLength(0);
+				state = TAG_NAME;
+			} else { // not a tag
+				token.append('<');
+				state = DATA;
+				emit(c);
+			}
+			break;
+
+		case TAG_NAME:
+			if (Parser.inClass(c, Parser.LETTER_OR_DIGIT)) {
+				token.append(c);
+			} else {
+				tagName = Atom.lowerCase(token, 0, token.length());
+				token.setLength(0);
+				state = BEFORE_ATTR_NAME;
+				beforeAttrName(c);
+			}
+			break;
+
+		case CLOSE_TAG:
+		case DECLARATION:
+			if (c == '>') {
+				if (state == CLOSE_TAG)
+					closeTag();
+				state = DATA;
+			}
+			break;
+
+		case BEFORE_ATTR_NAME:
+			beforeAttrName(c);
+			break;
+
+		case ATTR_NAME:
+			if (c == '=' || c == '>' || c == '/' || Parser.inClass(c, Parser.WHITESPACE)) {
+				attrName = Atom.lowerCase(token, 0, token.length());
+				token.setLength(0);
+				if (c == '=')
+					state = BEFORE_ATTR_VALUE;
+				else if (c == '>')
+					endAttribute(true);
+				else
+					state = AFTER_ATTR_NAME;
+			} else {
+				token.append(c);
+			}
+			break;
+
+		case AFTER_ATTR_NAME:
+			if (c == '=')
+				state = BEFORE_ATTR_VALUE;
+			else if (!Parser.inClass(c, Parser.WHITESPACE)) {
+				endAttribute(false);
+				beforeAttrName(c);
+			}
+			break;
+
+		case BEFORE_ATTR_VALUE:
+			if (c == '"' || c == '\'') {
+				quote = c;
+				token.append(c);
+				state = ATTR_VALUE_QUOTED;
+			} else if (c == '>') {
+				endAttribute(true);
+			} else if (!Parser.inClass(c, Parser.WHITESPACE)) {
+				token.append(c);
+				state = ATTR_VALUE_UNQUOTED;
+			}
+			break;
+
+		case ATTR_VALUE_QUOTED:
+			token.append(c);
+			if (c == quote)
+				endAttribute(false);
+			break;
+
+		case ATTR_VALUE_UNQUOTED:
+			if (c == '>')
+				endAttribute(true);
+			else if (Parser.inClass(c, Parser.WHITESPACE))
+				endAttribute(false);
+			else
+				token.append(c);
+			break;
+
+		case RAW_TEXT:
+			if (skipLeadingSpace && Parser.inClass(c, Parser.WHITESPACE))
+				break;
+			skipLeadingSpace = false;
+			token.append(c);
+			if (endsWithRawTextClose()) {
+				token.setLength(token.length() - rawTextTag.name.length() - 2);
+				endText();
+				state = CLOSE_TAG;
+			}
+			break;
+		}
+	} // emit(char)
+
+	/**
+	 * Handles a character read between the attributes of an opening tag.
+	 *
+	 * @param c a char
+	 */
+	private void beforeAttrName(char c) {
+		if (c == '>')
+			openTag();
+		else if (c != '/' && !Parser.inClass(c, Parser.WHITESPACE)) {
+			token.append(c);
+			state = ATTR_NAME;
+		}
+	} // beforeAttrName(char)
+
+	/**
+	 * Adds the attribute being read to the current tag, and ends the tag if
+	 * requested.
+	 *
+	 * @param endTag a boolean
+	 */
+	private void endAttribute(boolean endTag) {
+		if (attrCount == attrNames.length) {
+			attrNames = Arrays.copyOf(attrNames, 2 * attrCount);
+			attrEnds = Arrays.copyOf(attrEnds, 2 * attrCount);
+		}
+		attrNames[attrCount] = attrName;
+		values.append(token);
+		attrEnds[attrCount++] = values.length();
+		token.setLength(0);
+		state = BEFORE_ATTR_NAME;
+		if (endTag)
+			openTag();
+	} // endAttribute(boolean)
+
+	/**
+	 * Checks if the raw text read so far ends with "&lt;/" and the name of the
+	 * raw text element, in any case.
+	 * 
+	 * @return boolean
+	 */
+	private boolean endsWithRawTextClose() {
+		String name = rawTextTag.name;
+		int start = token.length() - name.length() - 2;
+		if (start < 0 || token.charAt(start) != '<' || token.charAt(start + 1) != '/')
+			return false;
+		for (int i = 0; i < name.length(); i++) {
+			if (Character.toLowerCase(token.charAt(start + 2 + i)) != name.charAt(i))
+				return false;
+		}
+		return true;
+	} // endsWithRawTextClose()
+
+	/**
+	 * Passes the text read so far to the builder.
+	 */
+	private void endText() {
+		if (token.length() > 0) {
+			if (admit(null, false))
+				builder.text(token, 0, token.length());
+			token.setLength(0);
+		}
+	} // endText()
+
+	/**
+	 * Passes the opening tag read so far and its attributes to the builder.
+	 */
+	private void openTag() {
+		boolean opens = !TagRegistry.isVoid(tagName);
+		state = DATA;
+		if (admit(tagName, opens)) {
+			builder.startElement(tagName);
+			for (int i = 0, start = 0; i < attrCount; start = attrEnds[i++])
+				builder.attribute(attrNames[i], values, start, attrEnds[i]);
+			builder.endAttributes(opens);
+		}
+		if (!opens) {
+			skipLeadingSpace = false;
+		} else {
+			skipLeadingSpace = true;
+			if (TagRegistry.isRawText(tagName)) {
+				rawTextTag = tagName;
+				state = RAW_TEXT;
+			}
+		}
+	} // openTag()
+
+	/**
+	 * Passes a closing tag to the builder.
+	 */
+	private void closeTag() {
+		skipLeadingSpace = false;
+		if (skipDepth > 0) {
+			skipDepth--;
+			return;
+		}
+		builder.closeElement();
+	} // closeTag()
+
+	/**
+	 * Checks if a node is passed to the builder, adding the html root before
+	 * the first node if needed. The nodes of a dropped head element are not.
+	 *
+	 * @param tagName the tag name of the node, or null for a text node
+	 * @param opens true if the node is an element that has children
+	 * @return true if the node is passed to the builder
+	 */
+	private boolean admit(Atom tagName, boolean opens) {
+		if (!started) {
+			started = true;
+			if (tagName != Atom.HTML) {
+				synthesizedRoot = true;
+				builder.startElement(Atom.HTML);
+				builder.endAttributes(true);
+			}
+		}
+		if (skipDepth > 0) {
+			if (opens)
+				skipDepth++;
+			return false;
+		}
+		if (opens && synthesizedRoot && builder.depth() == 1 && tagName == Atom.HEAD) {
+			skipDepth = 1;
+			return false;
+		}
+		return true;
+	} // admit(Atom, boolean)
+
+} // class HTMLTokenizer
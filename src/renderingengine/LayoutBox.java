@@ -1,7 +1,7 @@
 package renderingengine;
 
-import java.awt.FontMetrics;
 import java.util.ArrayList;
+import java.util.Arrays;
 
 /**
  * <p>
@@ -23,8 +23,18 @@ public class LayoutBox {
 	// +--------+
 	Dimensions dim;
 	ArrayList<LayoutBox> children;
+	LayoutBox parent;
 	int currInlinePosX;
 	int currInlinePosY;
+	boolean needsLayout; // this box must be laid out again
+	boolean childNeedsLayout; // a box below this one must be laid out again
+	double originWidth; // the width of the container this box was last laid out in
+	double originHeight; // the height the container had reached then
+	int originX; // the inline position this box was last laid out at
+	int originY;
+	boolean fork; // in parallel mode, this box is laid out by a task of its own
+	double deferredDy; // how far the descendants of this box are still to be moved down
+	int deferredLines; // how far the inline y position they start at is still to be moved down
 
 	// +--------------+---------------------------
 	// | Constructors |
@@ -38,6 +48,17 @@ public class LayoutBox {
 		children = new ArrayList<LayoutBox>();
 		currInlinePosX = (int) dim.content.width;
 		currInlinePosY = 0;
+		needsLayout = true;
+	}
+
+	/**
+	 * Adds a child at the end of the children of the current {@code LayoutBox}
+	 * 
+	 * @param child a {@code LayoutBox}
+	 */
+	public void addChild(LayoutBox child) {
+		child.parent = this;
+		children.add(child);
 	}
 
 	/**
@@ -55,18 +76,43 @@ public class LayoutBox {
 
 		// Return existing AnonymousBlock if just created otherwise new one
 		if (children.size() == 0)
-			children.add(new AnonymousBlock());
+			addChild(new AnonymousBlock());
 
 		if (!(children.get(children.size() - 1) instanceof AnonymousBlock))
-			children.add(new AnonymousBlock());
+			addChild(new AnonymousBlock());
 
 		return children.get(children.size() - 1);
 	}
 
+	/**
+	 * Marks the current {@code LayoutBox} as needing layout, after a change to its
+	 * style or its content, and its ancestors as having a descendant that does.
+	 * The next layout lays out only the marked boxes, and moves the others
+	 */
+	public void markNeedsLayout() {
+		needsLayout = true;
+		for (LayoutBox box = parent; box != null && !box.childNeedsLayout; box = box.parent)
+			box.childNeedsLayout = true;
+	}
+
 	/**
 	 * Layout the current {@code LayoutBox} within the {@code Dimensions} of the
 	 * parent container
 	 * 
+	 * The subtree is laid out in preorder, keeping a {@code Frame} for each box whose
+	 * children are being laid out. Each box is laid out in two steps: before its
+	 * children, by layoutBox, and after them, by layoutDone
+	 * 
+	 * A child that is not marked as needing layout, and that starts at the same inline
+	 * x position of a container of the same width as when it was last laid out, is
+	 * laid out the same way: it is only moved, so the cost of a layout is that of the
+	 * marked boxes and of their siblings
+	 * 
+	 * A child laid out by a {@code LayoutTask} of its own is laid out at the top of its
+	 * block and then moved down, but its descendants are only moved once the layout that
+	 * did not run in such a task is done, so they are moved once however deep the tasks
+	 * nest
+	 * 
 	 * @param container      a {@code Dimensions} object representing the dimensions
 	 *                       of the parent container
 	 * @param currInlinePosX an {@code int} representing the current inline x
@@ -75,65 +121,293 @@ public class LayoutBox {
 	 *                       position within the parent container
 	 */
 	public void layout(Dimensions container, int currInlinePosX, int currInlinePosY) {
+		if (!(this instanceof BlockNode)) {
+			this.currInlinePosX = currInlinePosX;
+			this.currInlinePosY = currInlinePosY;
+		}
+		ArrayList<Frame> path = new ArrayList<Frame>(); // the boxes whose children are being laid out
+		Frame first = layoutBox(container, currInlinePosX, currInlinePosY);
+		if (first != null)
+			path.add(first);
+
+		while (!path.isEmpty()) {
+			Frame frame = path.get(path.size() - 1);
+			LayoutBox box = frame.box;
+			if (frame.next == box.children.size()) { // every child is laid out
+				path.remove(path.size() - 1);
+				if (frame.tasks != null && !fork) // not in a task, so no block above moves it
+					frame.moveDeferred();
+				box.layoutDone();
+				if (!path.isEmpty())
+					path.get(path.size() - 1).box.childLaidOut(box);
+				continue;
+			}
+
+			LayoutBox child = box.children.get(frame.next);
+			LayoutTask task = (frame.tasks == null) ? null : frame.tasks[frame.next];
+			frame.next++;
+			if (task != null) { // laid out at the top of the block
+				task.join();
+				if (child instanceof BlockNode)
+					child.defer(box.dim.content.y + box.dim.content.height, 0);
+				else
+					child.defer(box.dim.content.y, box.currInlinePosY);
+				box.childLaidOut(child);
+				continue;
+			}
+
+			if (child.isReusable(box.dim.content.width, box.currInlinePosX)) {
+				if (child instanceof BlockNode)
+					child.shift(frame.dx, frame.dy + box.dim.content.height - child.originHeight,
+							box.currInlinePosY - child.originY);
+				else
+					child.shift(frame.dx, frame.dy, box.currInlinePosY - child.originY);
+				box.childLaidOut(child);
+				continue;
+			}
 
-		if (this instanceof BlockNode) {
-			BlockNode curr = (BlockNode) this;
-			curr.layoutBlock(container);
+			Frame next = child.layoutBox(box.dim, box.currInlinePosX, box.currInlinePosY);
+			if (next != null)
+				path.add(next);
+			else
+				box.childLaidOut(child);
 		}
+		laidOut(container, currInlinePosX, currInlinePosY);
+	}
 
+	/**
+	 * Lays out the current {@code LayoutBox} itself, before its children
+	 * 
+	 * @param container      is the {@code Dimensions} of parent
+	 * @param currInlinePosX is an int representing current x inline position within
+	 *                       parent
+	 * @param currInlinePosY is an int representing current y inline position within
+	 *                       parent
+	 * @return a {@code Frame} in which its children are to be laid out, or null if
+	 *         the box is laid out
+	 */
+	Frame layoutBox(Dimensions container, int currInlinePosX, int currInlinePosY) {
+		if (this instanceof BlockNode)
+			return ((BlockNode) this).layoutBlock(container);
+		if (this instanceof InlineNode)
+			return ((InlineNode) this).layoutBlock(container, currInlinePosX, currInlinePosY);
+		return ((AnonymousBlock) this).layoutBlock(container, currInlinePosX, currInlinePosY);
+	}
+
+	/**
+	 * Completes the layout of the current {@code LayoutBox} once its children are
+	 * laid out
+	 */
+	void layoutDone() {
+		if (this instanceof BlockNode)
+			((BlockNode) this).calculateBlockHeight();
 		else if (this instanceof InlineNode) {
-			this.currInlinePosX = currInlinePosX;
-			this.currInlinePosY = currInlinePosY;
-			InlineNode curr = (InlineNode) this;
-			curr.layoutBlock(container, currInlinePosX, currInlinePosY);
+			InlineNode node = (InlineNode) this;
+			node.updateX = currInlinePosX;
+			node.updateY = currInlinePosY;
+		}
+	}
+
+	/**
+	 * Records where a child of the current {@code LayoutBox} has been laid out, and
+	 * moves the inline position and the height of the current box past it
+	 * 
+	 * @param child is a laid out {@code LayoutBox} of children
+	 */
+	void childLaidOut(LayoutBox child) {
+		child.laidOut(dim, currInlinePosX, currInlinePosY);
+		if (child instanceof InlineNode) {
+			InlineNode c = (InlineNode) child;
+			dim.content.height += c.updateY - currInlinePosY;
+			currInlinePosX = c.updateX;
+			currInlinePosY = c.updateY;
+		}
+
+		else if (child instanceof AnonymousBlock) {
+			dim.content.height += child.currInlinePosY - currInlinePosY;
+			currInlinePosX = child.currInlinePosX;
+			currInlinePosY = child.currInlinePosY;
 		}
 
 		else {
-			this.currInlinePosX = currInlinePosX;
-			this.currInlinePosY = currInlinePosY;
-			AnonymousBlock curr = (AnonymousBlock) this;
-			curr.layoutBlock(container, currInlinePosX, currInlinePosY);
+			dim.content.height += child.dim.marginBox().height;
+			currInlinePosX = (int) dim.content.width;
+			currInlinePosY += child.dim.marginBox().height;
 		}
+	}
 
+	/**
+	 * Checks if the current {@code LayoutBox} would be laid out as it was last
+	 * time, at the given inline x position of a container of the given width
+	 */
+	boolean isReusable(double width, int currInlinePosX) {
+		return !needsLayout && !childNeedsLayout && originWidth == width
+				&& (this instanceof BlockNode || originX == currInlinePosX);
 	}
 
 	/**
-	 * Layout the children of the current {@code LayoutBox}
+	 * Records where the current {@code LayoutBox} has been laid out, and clears
+	 * its marks
 	 */
-	public void layoutBlockChildren() {
+	void laidOut(Dimensions container, int currInlinePosX, int currInlinePosY) {
+		originWidth = container.content.width;
+		originHeight = container.content.height;
+		originX = currInlinePosX;
+		originY = currInlinePosY;
+		needsLayout = false;
+		childNeedsLayout = false;
+	}
 
-		ArrayList<LayoutBox> add = new ArrayList<LayoutBox>();
-		for (LayoutBox child : children) {
-			if (child instanceof InlineNode) {
-				InlineNode c = (InlineNode) child;
-				ArrayList<InlineNode> splits = c.layoutBlock(dim, currInlinePosX, currInlinePosY);
-				if (splits != null) {
-					add.addAll(splits); // splits represents the text that has been split into smaller string in order
-										// to fit into the current container
-				}
+	/**
+	 * Moves the current {@code LayoutBox} and its descendants, whose layout is
+	 * otherwise unchanged
+	 * 
+	 * Each descendant is moved with how far the inline y position it starts at has
+	 * moved; the content of a block is placed
+	 * within its own box, so its descendants only move with it
+	 * 
+	 * @param dx     is how far the container has moved right
+	 * @param dy     is how far the container has moved down
+	 * @param dlines is how far the inline y position the box starts at has moved
+	 *               down within the container
+	 */
+	public void shift(double dx, double dy, int dlines) {
+		if (dx == 0 && dy == 0 && dlines == 0)
+			return;
+		ArrayList<LayoutBox> pending = new ArrayList<LayoutBox>();
+		int[] lines = new int[16]; // the dlines of each pending box
+		pending.add(this);
+		lines[0] = dlines;
+
+		while (!pending.isEmpty()) {
+			int d = lines[pending.size() - 1];
+			LayoutBox box = pending.remove(pending.size() - 1);
+			if (!box.move(dx, dy, d))
+				continue;
+			int childLines = (box instanceof BlockNode) ? 0 : d;
+			if (dx == 0 && dy == 0 && childLines == 0)
+				continue;
+			for (LayoutBox child : box.children) {
+				if (pending.size() == lines.length)
+					lines = Arrays.copyOf(lines, 2 * lines.length);
+				lines[pending.size()] = childLines;
+				pending.add(child);
+			}
+		}
+	}
 
-				dim.content.height += c.updateY - currInlinePosY;
-				currInlinePosX = c.updateX;
-				currInlinePosY = c.updateY;
+	/**
+	 * Moves the current {@code LayoutBox} down, and defers moving its descendants
+	 * until moveDeferred
+	 * 
+	 * @param dy     is how far the box moves down
+	 * @param dlines is how far the inline y position the box starts at moves down
+	 *               within the container
+	 */
+	void defer(double dy, int dlines) {
+		if (move(0, dy, dlines)) {
+			deferredDy = dy;
+			deferredLines = (this instanceof BlockNode) ? 0 : dlines;
+		}
+	}
+
+	/**
+	 * Moves the descendants of the current {@code LayoutBox} as far as deferred, with
+	 * those of the boxes below it whose moves are deferred too, in one walk
+	 */
+	void moveDeferred() {
+		ArrayList<LayoutBox> pending = new ArrayList<LayoutBox>();
+		double[] dys = new double[16]; // how far each pending box moves down
+		int[] lines = new int[16]; // the dlines of each pending box
+		pending.add(this);
+		lines[0] = 0;
+
+		while (!pending.isEmpty()) {
+			double dy = dys[pending.size() - 1];
+			int d = lines[pending.size() - 1];
+			LayoutBox box = pending.remove(pending.size() - 1);
+			if (!box.move(0, dy, d))
+				continue;
+			double childDy = dy + box.deferredDy;
+			int childLines = ((box instanceof BlockNode) ? 0 : d) + box.deferredLines;
+			box.deferredDy = 0;
+			box.deferredLines = 0;
+			for (LayoutBox child : box.children) {
+				if (pending.size() == lines.length) {
+					dys = Arrays.copyOf(dys, 2 * dys.length);
+					lines = Arrays.copyOf(lines, 2 * lines.length);
+				}
+				dys[pending.size()] = childDy;
+				lines[pending.size()] = childLines;
+				pending.add(child);
 			}
+		}
+	}
 
-			else if (child instanceof AnonymousBlock) {
-				AnonymousBlock c = (AnonymousBlock) child;
-				c.layoutBlock(dim, currInlinePosX, currInlinePosY);
-				dim.content.height += c.currInlinePosY - currInlinePosY;
-				currInlinePosX = c.currInlinePosX;
-				currInlinePosY = c.currInlinePosY;
+	/**
+	 * Moves the current {@code LayoutBox} itself
+	 * 
+	 * @param dx     is how far the container has moved right
+	 * @param dy     is how far the container has moved down
+	 * @param dlines is how far the inline y position the box starts at has moved
+	 *               down within the container
+	 * @return false if the box is placed on its line, so it has no descendants to
+	 *         move
+	 */
+	boolean move(double dx, double dy, int dlines) {
+		originY += dlines;
+		dim.content.x += dx;
+		dim.content.y += dy;
+		if (this instanceof BlockNode) // its content is placed within its own box
+			return true;
+
+		currInlinePosY += dlines;
+		if (this instanceof AnonymousBlock)
+			return true;
+
+		InlineNode node = (InlineNode) this;
+		node.updateY += dlines;
+		if (node.stynode.cont.txt.equals("") && node.stynode.tagName != Atom.IMG && node.stynode.tagName != Atom.BR)
+			return true; // an inline container is placed at its container
+		dim.content.y += dlines;
+		if (node.fragments != null) {
+			for (InlineNode line : node.fragments) {
+				line.dim.content.x += dx;
+				line.dim.content.y += dy + dlines;
 			}
+		}
+		return false;
+	}
 
-			else {
-				child.layout(dim, currInlinePosX, currInlinePosY);
-				dim.content.height += child.dim.marginBox().height;
-				currInlinePosX = (int) dim.content.width;
-				currInlinePosY += child.dim.marginBox().height;
+	/**
+	 * {@code Frame} is a box whose children are being laid out, with how far it has
+	 * moved since they were last laid out and the index of the next child to lay out
+	 */
+	static final class Frame {
+		final LayoutBox box;
+		final double dx;
+		final double dy;
+		LayoutTask[] tasks; // in parallel mode, the task laying out each child, or null
+		int next;
+
+		Frame(LayoutBox box, double dx, double dy) {
+			this.box = box;
+			this.dx = dx;
+			this.dy = dy;
+			this.tasks = null;
+			this.next = 0;
+			box.dim.content.height = 0;
+		}
+
+		/**
+		 * Moves the descendants of the children laid out by tasks as far as deferred
+		 */
+		void moveDeferred() {
+			for (int i = 0; i < tasks.length; i++) {
+				if (tasks[i] != null)
+					box.children.get(i).moveDeferred();
 			}
 		}
-		if (add.size() != 0)
-			children.addAll(add);
 	}
 }
 
@@ -145,10 +419,16 @@ public class LayoutBox {
  */
 class BlockNode extends LayoutBox {
 
+	// +-----------+-------------------------------
+	// | Constants |
+	// +-----------+
+	static final Length ZERO = new Length(0, "px");
+
 	// +--------+----------------------------------
 	// | Fields |
 	// +--------+
 	StyledNode stynode;
+	boolean forkChildren; // in parallel mode, some of its children are laid out by tasks of their own
 
 	// +--------------+---------------------------
 	// | Constructors |
@@ -173,17 +453,47 @@ class BlockNode extends LayoutBox {
 	}
 
 	/**
-	 * Lays out the current block node within {@code Dimensions} of parent container
+	 * Lays out the current block node within {@code Dimensions} of parent container,
+	 * before its children
 	 * 
 	 * @param container is the {@code Dimensions} of parent
+	 * @return a {@code Frame} in which its children are to be laid out
 	 */
-	public void layoutBlock(Dimensions container) {
+	public Frame layoutBlock(Dimensions container) {
+		double x = dim.content.x;
+		double y = dim.content.y;
 		calculateWidth(container);
 		calculateBlockPosition(container);
 		this.currInlinePosX = (int) dim.content.width;
 		this.currInlinePosY = 0;
-		layoutBlockChildren();
-		calculateBlockHeight();
+		Frame frame = new Frame(this, dim.content.x - x, dim.content.y - y);
+		if (forkChildren)
+			frame.tasks = forkTasks();
+		return frame;
+	}
+
+	/**
+	 * Forks a {@code LayoutTask} for each child marked to fork that has to be laid out
+	 * 
+	 * Every child of a block starts on a new line, so its layout depends on the width
+	 * of the block but not on the children before it. The tasks lay out the children
+	 * at the top of the block, while the children before them are laid out, and the
+	 * children are moved down as they are joined in order
+	 * 
+	 * @return the task of each child, or null
+	 */
+	public LayoutTask[] forkTasks() {
+		int lineStart = (int) dim.content.width;
+		Dimensions top = new Dimensions(new Rect(dim.content.x, 0, 0, dim.content.width));
+		LayoutTask[] tasks = new LayoutTask[children.size()];
+		for (int i = 0; i < children.size(); i++) {
+			LayoutBox child = children.get(i);
+			if (child.fork && !child.isReusable(dim.content.width, lineStart)) {
+				tasks[i] = new LayoutTask(child, top, lineStart, 0);
+				tasks[i].fork();
+			}
+		}
+		return tasks;
 	}
 
 	/**
@@ -194,25 +504,27 @@ class BlockNode extends LayoutBox {
 	 *                  of the parent container
 	 * 
 	 *                  The algorithm for calculating width follows CSS
-	 *                  specifications for normal flow
+	 *                  specifications for normal flow; percentages are of the
+	 *                  width of the container
 	 * @see <a href= "https://www.w3.org/TR/CSS2/visuren.html#positioning-scheme">
 	 *      </a>
 	 */
 	public void calculateWidth(Dimensions container) {
+		ComputedStyle style = stynode.style;
+		double base = container.content.width;
 
-		Value width = stynode.getValue("width");
-		width = (width instanceof Length) ? width : (new Keyword("auto"));
-
-		Length zero = new Length(0, "px");
+		Value width = style.get(Property.WIDTH);
+		width = (width instanceof Length) ? width : Keyword.AUTO;
 
-		Value[] surrounding = { width, stynode.lookup("margin-left", "margin", zero),
-				stynode.lookup("margin-right", "margin", zero),
-				stynode.lookup("border-left-width", "border-width", zero),
-				stynode.lookup("border-right-width", "border-width", zero),
-				stynode.lookup("padding-left", "padding", zero), stynode.lookup("padding-right", "padding", zero) };
+		Value[] surrounding = { width, style.get(Property.MARGIN_LEFT), style.get(Property.MARGIN_RIGHT),
+				style.lookup(Property.BORDER_LEFT_WIDTH, Property.BORDER_WIDTH, ZERO),
+				style.lookup(Property.BORDER_RIGHT_WIDTH, Property.BORDER_WIDTH, ZERO),
+				style.get(Property.PADDING_LEFT), style.get(Property.PADDING_RIGHT) };
 		double total = 0;
-		for (Value val : surrounding) {
-			total += val.getLen();
+		for (int i = 0; i < surrounding.length; i++) {
+			if (surrounding[i] instanceof Length && ((Length) surrounding[i]).isPercent())
+				surrounding[i] = new Length(ComputedStyle.resolve(surrounding[i], base), "px");
+			total += surrounding[i].getLen();
 		}
 
 		double underflow = container.content.width - total;
@@ -263,17 +575,19 @@ class BlockNode extends LayoutBox {
 	 * @param container is a {@code Dimensions} object representing the dimensions
 	 *                  of the parent container
 	 * 
+	 *                  Percentages are of the width of the container, as in CSS
 	 */
 	public void calculateBlockPosition(Dimensions container) {
-		Length zero = new Length(0, "px");
-		dim.margin.top = stynode.lookup("margin-top", "margin", zero).getLen();
-		dim.margin.bottom = stynode.lookup("margin-bottom", "margin", zero).getLen();
+		ComputedStyle style = stynode.style;
+		double base = container.content.width;
+		dim.margin.top = style.length(Property.MARGIN_TOP, base);
+		dim.margin.bottom = style.length(Property.MARGIN_BOTTOM, base);
 
-		dim.border.top = stynode.lookup("border-top-width", "border-width", zero).getLen();
-		dim.border.bottom = stynode.lookup("border-bottom-width", "border-width", zero).getLen();
+		dim.border.top = ComputedStyle.resolve(style.lookup(Property.BORDER_TOP_WIDTH, Property.BORDER_WIDTH, ZERO), base);
+		dim.border.bottom = ComputedStyle.resolve(style.lookup(Property.BORDER_BOTTOM_WIDTH, Property.BORDER_WIDTH, ZERO), base);
 
-		dim.padding.top = stynode.lookup("padding-top", "padding", zero).getLen();
-		dim.padding.bottom = stynode.lookup("padding-bottom", "padding", zero).getLen();
+		dim.padding.top = style.length(Property.PADDING_TOP, base);
+		dim.padding.bottom = style.length(Property.PADDING_BOTTOM, base);
 
 		dim.content.x = container.content.x + dim.margin.left + dim.padding.left + dim.border.left;
 		dim.content.y = container.content.y + container.content.height + dim.margin.top + dim.padding.bottom
@@ -282,10 +596,13 @@ class BlockNode extends LayoutBox {
 
 	/**
 	 * Calculate block height by taking into account CSS height property and heights
-	 * of children
+	 * of children. A height in percent is ignored, since the height of the
+	 * container depends on its content
 	 */
 	public void calculateBlockHeight() {
-		Value height = stynode.getValue("height");
+		Value height = stynode.style.get(Property.HEIGHT);
+		if (height instanceof Length && ((Length) height).isPercent())
+			return;
 		if (dim.content.height < height.getLen())
 			dim.content.height = height.getLen();
 	}
@@ -349,6 +666,9 @@ class InlineNode extends LayoutBox {
 	StyledNode stynode;
 	int updateX;
 	int updateY;
+	int start; // the range of the text of stynode on the line of this node
+	int end;
+	ArrayList<InlineNode> fragments; // the lines of the text after the first, or null
 
 	// +--------------+---------------------------
 	// | Constructors |
@@ -370,90 +690,91 @@ class InlineNode extends LayoutBox {
 	public InlineNode(StyledNode stynode) {
 		super();
 		this.stynode = stynode;
+		this.end = stynode.cont.txt.length();
 	}
 
 	/**
-	 * Lays out the current block node within {@code Dimensions} of parent container
+	 * Lays out the current inline node within {@code Dimensions} of parent container
 	 * beginning at position (currInlinePosX,currInlinePosY)
 	 * 
+	 * Text is broken into lines at word boundaries by a {@code LineBreaker}; the
+	 * first line is this node, and each following line is a fragment, an
+	 * {@code InlineNode} that shares its {@code StyledNode} and holds its own range of
+	 * the text. Fragments are kept apart from the children, so that the box tree is
+	 * the same after any number of layouts
+	 * 
 	 * @param container      is the {@code Dimensions} of parent
 	 * @param currInlinePosX is an int representing current x inline position within
 	 *                       parent
 	 * @param currInlinePosY is an int representing current y inline position within
 	 *                       parent
+	 * @return a {@code Frame} in which its children are to be laid out, or null if
+	 *         the node has no children
 	 */
-	public ArrayList<InlineNode> layoutBlock(Dimensions container, int currInlinePosX, int currInlinePosY) {
+	public Frame layoutBlock(Dimensions container, int currInlinePosX, int currInlinePosY) {
 
 		if (!stynode.cont.txt.equals("")) { // if it contains text content
 			String txt = stynode.cont.txt;
-			java.awt.Canvas c = new java.awt.Canvas();
-			FontMetrics metrics = c.getFontMetrics(stynode.cont.font);
-			dim.content.height = metrics.getHeight();
+			TextMetrics metrics = TextMetrics.of(stynode.cont.font);
+			int height = metrics.getHeight();
+			dim.content.height = height;
 			if (currInlinePosX == container.content.width) {
 				currInlinePosX = 0;
 				currInlinePosY += dim.content.height;
 			}
-			dim.content.x = container.content.x + currInlinePosX;
-			dim.content.y = container.content.y + currInlinePosY;
-
-			int spaceWidth = metrics.charWidth(' ');
-			if (txt.contains("BREAKLIEN")) { // breakline for <br> tag
-				int index = txt.indexOf("BREAKLIEN");
-				int w = metrics.stringWidth(txt.substring(0, index));
-				int spaces = (int) (container.content.width - currInlinePosX - w) / spaceWidth;
-				txt = txt.substring(0, index) + makeSpaces(spaces) + "<DELETE>" + txt.substring(index + 9);
-				stynode.cont.txt = txt;
-			}
 
-			int width = metrics.stringWidth(txt);
-			double overflow = currInlinePosX + width - container.content.width;
-			if (overflow > 0) { // if text overflows width of container, split text into next line
-				ArrayList<InlineNode> splits = new ArrayList<InlineNode>();
-				InlineNode prev = this;
-				while (overflow > 0) { // keep splitting till all text fits within container
-					int len = txt.length();
-					int cutoff = (int) (len * (container.content.width - currInlinePosX) / width);
-					prev.stynode.cont.txt = txt.substring(0, cutoff);
-					InlineNode split = new InlineNode();
-					split.stynode = prev.stynode.copy();
-					split.stynode.cont.txt = txt.substring(cutoff).replaceAll("\\s*<DELETE>", "");
-					split.dim.content.x = container.content.x + 0;
-					split.dim.content.y = container.content.y + currInlinePosY + prev.dim.content.height;
-					split.dim.content.height = prev.dim.content.height;
-					prev.dim.content.width = metrics.stringWidth(prev.stynode.cont.txt);
-					currInlinePosX = 0; // starting on next line
-					txt = split.stynode.cont.txt;
-
-					if (txt.contains("BREAKLIEN")) { // break lines if <br> exists
-						int index = txt.indexOf("BREAKLIEN");
-						int w = metrics.stringWidth(txt.substring(0, index));
-						int spaces = (int) (container.content.width - currInlinePosX - w) / spaceWidth;
-						txt = txt.substring(0, index) + makeSpaces(spaces) + "<DELETE>" + txt.substring(index + 9);
-						split.stynode.cont.txt = txt;
-					}
-					split.dim.content.width = metrics.stringWidth(split.stynode.cont.txt);
-					updateX = (int) split.dim.content.width; // update x
-					updateY = (int) (currInlinePosY + prev.dim.content.height); // update y
-					currInlinePosY = updateY;
-					width = (int) split.dim.content.width;
-					overflow = currInlinePosX + width - container.content.width;
-					splits.add(split);
-					prev = split;
+			// each line of the text is a range of txt, the first one in this node
+			LineBreaker lines = new LineBreaker(txt, metrics);
+			fragments = null;
+			InlineNode line = this;
+			int pos = 0;
+			while (true) {
+				int k = lines.fit(pos, container.content.width - currInlinePosX, currInlinePosX == 0);
+				if (k < 0) { // not even a word fits after what is on the line
+					currInlinePosX = 0;
+					currInlinePosY += height;
+					continue;
 				}
-				return splits;
+				boolean last = lines.nexts[k] >= txt.length();
+				line.start = pos;
+				line.end = last ? txt.length() : lines.ends[k];
+				line.dim.content.x = container.content.x + currInlinePosX;
+				line.dim.content.y = container.content.y + currInlinePosY;
+				line.dim.content.width = lines.width(line.start, line.end);
+				line.dim.content.height = height;
+				currInlinePosX += (int) line.dim.content.width;
+				if (last)
+					break;
+
+				currInlinePosX = 0; // starting on next line
+				currInlinePosY += height;
+				pos = lines.nexts[k];
+				line = new InlineNode(stynode);
+				if (fragments == null)
+					fragments = new ArrayList<InlineNode>();
+				fragments.add(line);
 			}
+			updateX = currInlinePosX;
+			updateY = currInlinePosY;
+		}
 
-			else { // if text doesn't overflow just set current position and update inline position
-					// (x,y)
-				dim.content.width = width;
-				updateX = currInlinePosX + (int) dim.content.width;
-				updateY = currInlinePosY;
+		else if (stynode.tagName == Atom.BR) { // a line break ends the current line box
+			int height = TextMetrics.of(stynode.cont.font).getHeight();
+			if (currInlinePosX == container.content.width) { // the line box has not been started
+				currInlinePosX = 0;
+				currInlinePosY += height;
 			}
+			dim.content.x = container.content.x + currInlinePosX;
+			dim.content.y = container.content.y + currInlinePosY;
+			dim.content.width = 0;
+			dim.content.height = height;
+			updateX = 0;
+			updateY = currInlinePosY + height;
 		}
 
-		else if (stynode.tagName.compareTo("img") == 0) { // if image content is specified
-			String width = stynode.attributes.get("width");
-			String height = stynode.attributes.get("height");// .replaceAll("\"", "");
+		else if (stynode.tagName == Atom.IMG) { // if image content is specified
+			String width = stynode.attribute("width");
+			String height = stynode.attribute("height");// .replaceAll("\"", "");
 			if (width != null && height != null) {
 				width = width.replaceAll("\"", "");
 				height = height.replaceAll("\"", "");
@@ -480,33 +801,136 @@ class InlineNode extends LayoutBox {
 			}
 		}
 
-		else { // else layout children and update inline position (x,y)
+		else { // else layout children and then update inline position (x,y)
+			double x = dim.content.x;
+			double y = dim.content.y;
 			this.currInlinePosX = currInlinePosX;
 			this.currInlinePosY = currInlinePosY;
 			dim.content.x = container.content.x;
 			dim.content.y = container.content.y;
 			dim.content.width = container.content.width;
-			layoutBlockChildren();
-			updateX = this.currInlinePosX;
-			updateY = this.currInlinePosY;
+			return new Frame(this, dim.content.x - x, dim.content.y - y);
 		}
 		return null;
 	}
 
 	/**
-	 * Make specified number of spaces
+	 * Gets the text of the line of this node
+	 * 
+	 * @return a {@code String}, empty if the node has no text
+	 */
+	public String text() {
+		return stynode.cont.txt.substring(start, end);
+	}
+
+}
+
+/**
+ * <p>
+ * {@code LineBreaker} finds where the lines of a text end
+ * <p>
+ * 
+ * The advances of the characters are measured once into a prefix-sum array, so the width
+ * of any range of the text is a difference. A line may end after a word, before the spaces
+ * that follow it; these ends are kept in order, so the last one that fits on a line is
+ * found by binary search. Breaking a text takes linear time and allocates nothing per line.
+ * Forced breaks are not part of the text: a {@code <br>} is a box of its own
+ */
+class LineBreaker {
+	// +--------+----------------------------------
+	// | Fields |
+	// +--------+
+	int[] prefix; // the width of the first i characters
+	int[] ends; // where each line that may end, ends
+	int[] nexts; // where the line after it starts
+	int count; // the number of ends
+
+	// +--------------+---------------------------
+	// | Constructors |
+	// +--------------+
+
+	/**
+	 * Constructs a {@code LineBreaker} for the given text
+	 * 
+	 * @param txt is a {@code String}
+	 * @param metrics is the {@code TextMetrics} of the font of txt
+	 */
+	public LineBreaker(String txt, TextMetrics metrics) {
+		int len = txt.length();
+		prefix = new int[len + 1];
+		ends = new int[8];
+		nexts = new int[8];
+		for (int i = 0; i < len; i++) {
+			char c = txt.charAt(i);
+			prefix[i + 1] = prefix[i] + metrics.charWidth(c);
+			if (Character.isWhitespace(c) && i > 0 && !Character.isWhitespace(txt.charAt(i - 1))) {
+				int next = i + 1;
+				while (next < len && Character.isWhitespace(txt.charAt(next)))
+					next++;
+				add(i, next);
+			}
+		}
+		if (count == 0 || nexts[count - 1] < len)
+			add(len, len);
+	}
+
+	// +---------+--------------------------------------------------
+	// | Methods |
+	// +---------+
+
+	/**
+	 * Finds the last end at which a line starting at pos fits in the available width
 	 * 
-	 * @param spaces is an int specifying number of spaces to be made
-	 * @return a {@code String} with specified number of spaces
+	 * @param pos is the index where the line starts
+	 * @param available is the width left on the line
+	 * @param lineStart is true if nothing is on the line yet, in which case the first end
+	 *                  is taken even if it does not fit
+	 * @return the index of an end, or -1 if none fits
 	 */
-	public String makeSpaces(int spaces) {
-		String str = "";
-		for (int i = 0; i < spaces; i++) {
-			str += ' ';
+	public int fit(int pos, double available, boolean lineStart) {
+		int lo = 0;
+		int hi = count - 1;
+		while (lo < hi) { // the first end whose next line starts after pos
+			int mid = (lo + hi) >>> 1;
+			if (nexts[mid] > pos)
+				hi = mid;
+			else
+				lo = mid + 1;
+		}
+		int first = lo;
+		if (prefix[ends[first]] - prefix[pos] > available)
+			return lineStart ? first : -1;
+		hi = count - 1;
+		while (lo < hi) { // the last end that fits
+			int mid = (lo + hi + 1) >>> 1;
+			if (prefix[ends[mid]] - prefix[pos] <= available)
+				lo = mid;
+			else
+				hi = mid - 1;
 		}
-		return str;
+		return lo;
 	}
 
+	/**
+	 * Gets the width of a range of the text
+	 * 
+	 * @param start is the index of the first character
+	 * @param end is the index after the last character
+	 * @return an int
+	 */
+	public int width(int start, int end) {
+		return prefix[end] - prefix[start];
+	}
+
+	private void add(int end, int next) {
+		if (count == ends.length) {
+			ends = Arrays.copyOf(ends, 2 * count);
+			nexts = Arrays.copyOf(nexts, 2 * count);
+		}
+		ends[count] = end;
+		nexts[count] = next;
+		count++;
+	}
 }
 
 /**
@@ -536,22 +960,25 @@ class AnonymousBlock extends LayoutBox {
 	}
 
 	/**
-	 * Lays out the current block node within {@code Dimensions} of parent container
-	 * beginning at position (currInlinePosX,currInlinePosY)
+	 * Lays out the current anonymous block within {@code Dimensions} of parent container
+	 * beginning at position (currInlinePosX,currInlinePosY), before its children
 	 * 
 	 * @param container      is the {@code Dimensions} of parent
 	 * @param currInlinePosX is an int representing current x inline position within
 	 *                       parent
 	 * @param currInlinePosY is an int representing current y inline position within
 	 *                       parent
+	 * @return a {@code Frame} in which its children are to be laid out
 	 */
-	public void layoutBlock(Dimensions container, int currInlinePosX, int currInlinePosY) {
+	public Frame layoutBlock(Dimensions container, int currInlinePosX, int currInlinePosY) {
+		double x = dim.content.x;
+		double y = dim.content.y;
 		this.currInlinePosX = currInlinePosX;
 		this.currInlinePosY = currInlinePosY;
 		dim.content.x = container.content.x;
 		dim.content.y = container.content.y;
 		dim.content.width = container.content.width;
-		layoutBlockChildren();
+		return new Frame(this, dim.content.x - x, dim.content.y - y);
 	}
 }
 
@@ -0,0 +1,50 @@
+package renderingengine;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * <p>
+ * {@code LayoutTask} lays out a subtree of the {@code LayoutTree} in parallel mode
+ * The blocks of its subtree fork tasks of their own for their large children
+ * </p>
+ */
+class LayoutTask extends RecursiveAction
+{
+	private static final long serialVersionUID = 1L;
+
+	// +--------+----------------------------------
+	// | Fields |
+	// +--------+
+	LayoutBox box;
+	Dimensions container;
+	int currInlinePosX;
+	int currInlinePosY;
+
+	// +--------------+---------------------------
+	// | Constructors |
+	// +--------------+
+
+	/**
+	 * Constructs a {@code LayoutTask} for the subtree of box
+	 * @param box is the {@code LayoutBox} to lay out with its subtree
+	 * @param container is the {@code Dimensions} of the container of box, which is not modified
+	 * @param currInlinePosX is the inline x position box starts at
+	 * @param currInlinePosY is the inline y position box starts at
+	 */
+	public LayoutTask(LayoutBox box, Dimensions container, int currInlinePosX, int currInlinePosY)
+	{
+		this.box = box;
+		this.container = container;
+		this.currInlinePosX = currInlinePosX;
+		this.currInlinePosY = currInlinePosY;
+	}
+
+	// +---------+--------------------------------------------------
+	// | Methods |
+	// +---------+
+	@Override
+	protected void compute()
+	{
+		box.layout(container, currInlinePosX, currInlinePosY);
+	}
+}
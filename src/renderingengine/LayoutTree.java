@@ -1,5 +1,9 @@
 package renderingengine;
 
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.concurrent.ForkJoinPool;
+
 /**
  * <p>
  * {@code LayoutTree} composed of {@code LayoutBox} nodes represents the laid out/positioned StyledTree. 
@@ -12,6 +16,8 @@ public class LayoutTree
 	// | Fields |
 	// +--------+
 	LayoutBox root;
+	IdentityHashMap<StyledNode, LayoutBox> boxOf; // the box of each styled node that has one
+	boolean parallel;
 
 
 	// +--------------+---------------------------
@@ -27,46 +33,143 @@ public class LayoutTree
 	 */
 	public LayoutTree(StyleTree sty, Dimensions bounds)
 	{
+		this(sty, bounds, false);
+	}
+
+	/**
+	 * Constructs a {@code LayoutTree} from given {@code StyleTree}, like {@code LayoutTree(sty, bounds)}
+	 * In parallel mode, the child of a block whose subtree has at least {@code ForkRoots.PARALLEL_THRESHOLD} boxes
+	 * is laid out by a task of the common {@code ForkJoinPool}, at the top of the block, and moved down
+	 * once the children before it are laid out; its descendants are moved once, when the whole tree is
+	 * laid out, and the layout is the same as in sequential mode
+	 * @param sty a {@code StyleTree} which has to be laid out
+	 * @param bounds a {@code Dimensions} is the parent container of root
+	 * @param parallel is true to lay out large subtrees in parallel, now and on every relayout
+	 */
+	public LayoutTree(StyleTree sty, Dimensions bounds, boolean parallel)
+	{
+		boxOf = new IdentityHashMap<StyledNode, LayoutBox>();
 		root = buildTree(sty.root);
+		this.parallel = parallel;
+		if(parallel)
+			markLargeSubtrees(root);
+		relayout(bounds);
+	}
+
+	/**
+	 * Marks the box of given {@code StyledNode} as needing layout, after its style or its text has changed
+	 * The change is laid out by the next call to relayout
+	 * @param sn a {@code StyledNode} of the {@code StyleTree} this tree was built from
+	 */
+	public void markNeedsLayout(StyledNode sn)
+	{
+		LayoutBox box = boxOf.get(sn);
+		if(box != null)
+			box.markNeedsLayout();
+	}
+
+	/**
+	 * Lays out the tree again within bounds, after some of its boxes have been marked as needing layout
+	 * Only the marked boxes are laid out again; the boxes after them are moved by as much as the marked
+	 * boxes have grown, which measures no text, and are not even visited when nothing has grown
+	 * The boxes themselves are not built again: a change of display or of the children of a node needs
+	 * a new {@code LayoutTree}
+	 * @param bounds a {@code Dimensions} is the parent container of root
+	 */
+	public void relayout(Dimensions bounds)
+	{
 		bounds.content.height = 0;
-		root.layout(bounds,0,0);
+		if(parallel)
+			ForkJoinPool.commonPool().invoke(new LayoutTask(root, bounds, 0, 0));
+		else
+			root.layout(bounds,0,0);
 		bounds.content.height = root.dim.content.height;
 	}
 
 	/**
 	 * Builds a {@code LayoutBox} from given {@code StyleNode}
-	 * The dimensions of resulting {@code LayoutTree} root is constrained by the width of bounds
-	 * The height of {@code LayoutTree} root is determined by the content
+	 * The boxes are built in preorder; a child whose display is inline goes into the inline
+	 * container of its parent's box, and a child whose display is none has no box
 	 * @param sn a {@code StyledNode} which has to be positioned
 	 * @return {@code LayoutBox}
 	 */
 	public LayoutBox buildTree(StyledNode sn)
 	{
-		String option = sn.display();
-		LayoutBox lb = new LayoutBox();
-		if(option.compareTo("block") == 0)
-			lb = new BlockNode(sn);
-		else if(option.compareTo("inline") == 0)
-			lb = new InlineNode(sn);
-		else
+		Atom option = sn.display();
+		if(option == Atom.NONE)
 		{
 			System.out.println("Root node has display option: " + option);
 			System.exit(1);
 		}
+		LayoutBox root = newBox(sn);
+		boxOf.put(sn, root);
 
-		for(Node child0: sn.children)
+		ArrayList<StyledNode> pending = new ArrayList<StyledNode>();
+		ArrayList<LayoutBox> boxes = new ArrayList<LayoutBox>();
+		pending.add(sn);
+		boxes.add(root);
+		while(!pending.isEmpty())
 		{
-			StyledNode child = (StyledNode) child0;
-			option = child.display();
-			if(option.compareTo("block") == 0)
-				lb.children.add(buildTree(child));
-			else if(option.compareTo("inline") == 0)
-				//add tree rooted at child to either an existing AnonymousBlock/InlineBlock or a new AnonymousBlock
-				lb.getInlineContainer().children.add(buildTree(child)); 
+			StyledNode curr = pending.remove(pending.size()-1);
+			LayoutBox lb = boxes.remove(boxes.size()-1);
+			for(Node child0: curr.children)
+			{
+				StyledNode child = (StyledNode) child0;
+				option = child.display();
+				if(option == Atom.NONE)
+					continue;
+
+				LayoutBox box = newBox(child);
+				boxOf.put(child, box);
+				if(option == Atom.BLOCK)
+					lb.addChild(box);
+				else
+					//add tree rooted at child to either an existing AnonymousBlock/InlineBlock or a new AnonymousBlock
+					lb.getInlineContainer().addChild(box);
+				pending.add(child);
+				boxes.add(box);
+			}
 		}
-		return lb;
+		return root;
 	}
 
-}
+	/**
+	 * Marks each child of a block whose subtree has at least {@code ForkRoots.PARALLEL_THRESHOLD} boxes as
+	 * laid out by a task of its own, and the block as forking, unless the child is the only one or the block
+	 * is in {@code ForkRoots.MAX_FORK_DEPTH} such subtrees already
+	 * @param box a {@code LayoutBox}, the root of the subtree to mark
+	 */
+	public void markLargeSubtrees(LayoutBox box)
+	{
+		ForkRoots<LayoutBox> roots = new ForkRoots<LayoutBox>()
+		{
+			ArrayList<LayoutBox> children(LayoutBox node)
+			{
+				return node.children;
+			}
 
+			boolean forks(LayoutBox node, int large)
+			{
+				return node instanceof BlockNode && node.children.size() > 1;
+			}
+		};
+		for(LayoutBox child: roots.find(box).keySet())
+		{
+			child.fork = true;
+			((BlockNode) child.parent).forkChildren = true;
+		}
+	}
 
+	/**
+	 * Creates the {@code LayoutBox} of given {@code StyledNode}, without its children
+	 * @param sn a {@code StyledNode} whose display option is block or inline
+	 * @return a {@code BlockNode} or an {@code InlineNode}
+	 */
+	public LayoutBox newBox(StyledNode sn)
+	{
+		if(sn.display() == Atom.BLOCK)
+			return new BlockNode(sn);
+		return new InlineNode(sn);
+	}
+
+}
@@ -1,10 +1,13 @@
 package renderingengine;
 
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Scanner;
 
@@ -20,17 +23,12 @@ public class Main {
 	 * Creates a string out of a local file.
 	 * 
 	 * @param f a {@code File}.
-	 * @return a string containing each line of the specified file.
-	 * @throws FileNotFoundException if the specified file is not found.
+	 * @return a string containing the specified file, line breaks included.
+	 * @throws IOException if the specified file cannot be read.
+	 * @see ResourceLoader
 	 */
-	public static String fileToString(File f) throws FileNotFoundException {
-		Scanner sc = new Scanner(f);
-		String html = "";
-		while (sc.hasNextLine()) {
-			html += sc.nextLine();
-		}
-		sc.close();
-		return html;
+	public static String fileToString(File f) throws IOException {
+		return ResourceLoader.loadString(f);
 	} // fileToString(File)
 
 	/**
@@ -48,12 +46,12 @@ public class Main {
 		for (Node child : root.children) {
 			if (child instanceof Element) {
 				Element possibleHead = (Element) child;
-				if (possibleHead.tagName.compareTo("head") == 0) {
+				if (possibleHead.tagName == Atom.HEAD) {
 					// loop through head's children for links
 					for (Node child2 : child.children) {
 						if (child2 instanceof Element) {
 							Element possibleLink = (Element) child2;
-							if (possibleLink.tagName.compareTo("link") == 0) {
+							if (possibleLink.tagName == Atom.LINK) {
 								// we found a link element
 								// check if we have a stylesheet
 								String rel = possibleLink.attributes.get("rel");
@@ -79,6 +77,43 @@ public class Main {
 		return StylesheetLinks;
 	} // getStylesheetLinks(DOM, String)
 
+	/**
+	 * Retrieves the links to stylesheets under the head tag of a
+	 * {@code CompactDOM}.
+	 * 
+	 * @param d   a {@code CompactDOM}
+	 * @param URL a {@code String}
+	 * @return an {@code ArrayList} containing each of the links to stylesheets
+	 *         found under the head tag.
+	 */
+	public static ArrayList<String> getStylesheetLinks(CompactDOM d, String URL) {
+
+		ArrayList<String> StylesheetLinks = new ArrayList<String>();
+		for (int head = d.firstChild(d.root()); head != CompactDOM.NONE; head = d.nextSibling(head)) {
+			if (d.tagName(head) == Atom.HEAD) {
+				// loop through head's children for links
+				for (int link = d.firstChild(head); link != CompactDOM.NONE; link = d.nextSibling(link)) {
+					if (d.tagName(link) == Atom.LINK) {
+						String rel = d.attribute(link, "rel");
+						String href = d.attribute(link, "href");
+						String type = d.attribute(link, "type");
+						if (rel != null && href != null && type != null) {
+							// remove " characters
+							rel = rel.replaceAll("[\"]", "");
+							href = href.replaceAll("[\"]", "");
+							type = type.replaceAll("[\"]", "");
+							if (type.compareTo("text/css") == 0 && rel.compareTo("stylesheet") == 0) {
+								StylesheetLinks.add(urlExtension(URL, href));
+							}
+						}
+					}
+				}
+				break;
+			}
+		}
+		return StylesheetLinks;
+	} // getStylesheetLinks(CompactDOM, String)
+
 	/**
 	 * Tests if the specified string str begins with the specified string prefix.
 	 * 
@@ -148,6 +183,34 @@ public class Main {
 		return content;
 	} // fileFromURLToString(URL)
 
+	/**
+	 * Creates the DOM of the html file found at the specified url while the file
+	 * is being downloaded, so that the whole page is never held as a string.
+	 * The file is decoded with the charset given by the server, or UTF-8.
+	 * 
+	 * @param url a {@code URL} object of the html file to parse.
+	 * @return the {@code DOM} of the html file found in the specified url.
+	 * @throws Exception if the connection cannot be read or the DOM is empty.
+	 */
+	public static DOM domFromURL(URL url) throws Exception {
+		URLConnection connection = url.openConnection();
+		Charset charset = StandardCharsets.UTF_8;
+		String type = connection.getContentType();
+		if (type != null && type.contains("charset=")) {
+			String name = type.substring(type.indexOf("charset=") + 8);
+			if (name.indexOf(';') >= 0)
+				name = name.substring(0, name.indexOf(';'));
+			try {
+				charset = Charset.forName(name.replace("\"", "").trim());
+			} catch (Exception e) {
+				// keep UTF-8
+			}
+		}
+		try (ReadableByteChannel channel = Channels.newChannel(connection.getInputStream())) {
+			return new HTMLParser(channel, charset).dom;
+		}
+	} // domFromURL(URL)
+
 	/**
 	 * Adds the stylesheet css files found in the url links in StylesheetLinks onto
 	 * the String css
@@ -192,6 +255,8 @@ public class Main {
 		 * current assignment to String html
 		 */
 		// html = = fileToString(new File("./html.txt"));
+		// The parser can also read the file's buffer directly:
+		// dom = new HTMLParser(ResourceLoader.load(new File("./html.txt"))).dom;
 
 		/*
 		 * Main Run By default, we run on the url https://paulhus.math.grinnell.edu/ If
@@ -206,17 +271,30 @@ public class Main {
 
 		// Create the DOM
 		dom = new HTMLParser(html).dom;
+		/*
+		 * Streaming Run To parse the page while it is being downloaded instead of
+		 * loading it into a string first, replace the two assignments above with
+		 * dom = domFromURL(new URL(siteURLString));
+		 *
+		 * Compact Run To keep the document in a CompactDOM, which takes a
+		 * fraction of the memory on large pages, use instead
+		 * CompactDOM compact = new HTMLParser(html, true).compactDom;
+		 * with getStylesheetLinks(compact, siteURLString) and
+		 * new StyleTree(compact, sheet) below.
+		 */
 		// Create the complete CSS String
 		StylesheetLinks = getStylesheetLinks(dom, siteURLString);
-		css = fileToString(new File("./defaultsheet.txt")); // Our default stylesheet
-		css = CompleteCSSString(css, StylesheetLinks);
-		// Create the Style Sheet
+		css = CompleteCSSString("", StylesheetLinks);
+		// Create the Style Sheet, over our default stylesheet, which is compiled once
 		sheet = new CSSParser(css).sheet;
+		sheet.setUserAgent(UserAgentStyle.defaults());
 		// Create the Style Tree
+		// (new StyleTree(dom, sheet, true) styles large subtrees in parallel)
 		sty = new StyleTree(dom, sheet);
 		// Set default total dimensions
 		bounds = new Dimensions(new Rect(0, 0, 600, 960));
 		// Create Layout Tree
+		// (new LayoutTree(sty, bounds, true) lays out large block subtrees in parallel)
 		layout = new LayoutTree(sty, bounds);
 		// Render!!!
 		new Rendering(siteURLString, layout, bounds.content);
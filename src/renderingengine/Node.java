@@ -2,7 +2,6 @@ package renderingengine;
 
 import java.awt.Font;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
 
 /**
@@ -84,12 +83,19 @@ class Text extends Node {
  * 
  */
 class Element extends Node {
+
+	// +-----------+------------------------------
+	// | Constants |
+	// +-----------+
+	static final Atom[] NO_CLASSES = new Atom[0];
 	
 	// +--------+------------------------------
 	// | Fields |
 	// +--------+
-	String tagName;
-	HashMap<String, String> attributes;
+	Atom tagName;
+	HashMap<String, String> attributes; // null in a view of an element of a CompactDOM
+	Atom id; // the unquoted id attribute, or Atom.EMPTY
+	Atom[] classes; // the unquoted tokens of the class attribute
 
 	// +--------------+-------------------------------------------
 	// | Constructors |
@@ -99,30 +105,51 @@ class Element extends Node {
 	 * Constructs an {@code Element} object out of a specified string and
 	 * specified hashmap. 
 	 * 
-	 * @param tagName a {@code String} that represents the name of the tag
+	 * @param tagName an {@code Atom} that represents the name of the tag
 	 * @param attributes a {@code HashMap} that represents the attribute-value
 	 * pairs that are specified in the tag element.
 	 */
-	public Element(String tagName, HashMap<String, String> attributes) {
+	public Element(Atom tagName, HashMap<String, String> attributes) {
 		super();
 		this.tagName = tagName;
 		this.attributes = attributes;
-	} // Element(String, HashMap<String, String>
+		this.id = parseId(attributes.get("id"));
+		this.classes = parseClasses(attributes.get("class"));
+	} // Element(Atom, HashMap<String, String>
 
 	/**
 	 * Constructs an {@code Element} object out of a specified arraylist, string, and
 	 * hashmap.
 	 * 
 	 * @param children a {@code Node}-parameterized {@code ArrayList} 
-	 * @param tagName a {@code String} that denotes the name of the tag element
+	 * @param tagName an {@code Atom} that denotes the name of the tag element
 	 * @param attributes a {@code HashMap} that represents the attribute-value
 	 * pairs that are specified in the tag element.
 	 */
-	public Element(ArrayList<Node> children, String tagName, HashMap<String, String> attributes) {
+	public Element(ArrayList<Node> children, Atom tagName, HashMap<String, String> attributes) {
 		super(children);
 		this.tagName = tagName;
 		this.attributes = attributes;
-	} // Element(ArrayList<Node>, String, HashMap<String, String>
+		this.id = parseId(attributes.get("id"));
+		this.classes = parseClasses(attributes.get("class"));
+	} // Element(ArrayList<Node>, Atom, HashMap<String, String>
+
+	/**
+	 * Constructs an {@code Element} with the specified tag name, id and
+	 * classes and no attributes, such as a view of an element of a
+	 * {@code CompactDOM}.
+	 * 
+	 * @param tagName an {@code Atom} that denotes the name of the tag element
+	 * @param id an {@code Atom}, which is {@code Atom.EMPTY} if there is no id
+	 * @param classes an array of {@code Atom}
+	 */
+	Element(Atom tagName, Atom id, Atom[] classes) {
+		super();
+		this.tagName = tagName;
+		this.attributes = null;
+		this.id = id;
+		this.classes = classes;
+	} // Element(Atom, Atom, Atom[])
 
 
 	// +---------+-------------------------------------------
@@ -130,33 +157,75 @@ class Element extends Node {
 	// +---------+
 	
 	/**
-	 * Finds and returns an ArrayList containing the value
-	 * assignment to a given property for our Node
+	 * Tests if the class attribute of this element contains the specified
+	 * class.
 	 * 
-	 * @param property a String
-	 * @return
+	 * @param clas an {@code Atom}
+	 * @return boolean
 	 */
-	public ArrayList<String> getValue(String property) {
-		ArrayList<String> value = new ArrayList<String>();
-		if (!attributes.containsKey(property)) {
-			value.add("");
+	public boolean hasClass(Atom clas) {
+		for (int i = 0; i < classes.length; i++) {
+			if (classes[i] == clas)
+				return true;
 		}
+		return false;
+	} // hasClass(Atom)
 
-		else if (property.compareTo("id") == 0) {
-			value.add(attributes.get(property));
-		}
+	/**
+	 * Creates the atom of an id attribute value.
+	 * 
+	 * @param value the value of the attribute, or null
+	 * @return an {@code Atom}, which is {@code Atom.EMPTY} if there is no id
+	 */
+	static Atom parseId(String value) {
+		if (value == null)
+			return Atom.EMPTY;
+		value = unquote(value);
+		return Atom.of(value, 0, value.length());
+	} // parseId(String)
 
-		else if (property.compareTo("class") == 0) {
-			String[] classes = attributes.get(property).split(" ");
-			Collections.addAll(value, classes);
+	/**
+	 * Creates the atoms of the whitespace-separated tokens of a class
+	 * attribute value.
+	 * 
+	 * @param value the value of the attribute, or null
+	 * @return an array of {@code Atom}
+	 */
+	static Atom[] parseClasses(String value) {
+		if (value == null)
+			return NO_CLASSES;
+		value = unquote(value);
+		ArrayList<Atom> tokens = new ArrayList<Atom>();
+		int len = value.length();
+		int i = 0;
+		while (i < len) {
+			while (i < len && Parser.inClass(value.charAt(i), Parser.WHITESPACE))
+				i++;
+			int start = i;
+			while (i < len && !Parser.inClass(value.charAt(i), Parser.WHITESPACE))
+				i++;
+			if (i > start)
+				tokens.add(Atom.of(value, start, i));
 		}
+		return tokens.isEmpty() ? NO_CLASSES : tokens.toArray(new Atom[tokens.size()]);
+	} // parseClasses(String)
 
+	/**
+	 * Removes the quotes around an attribute value, if any.
+	 * 
+	 * @param value a String
+	 * @return a String
+	 */
+	static String unquote(String value) {
+		int len = value.length();
+		if (len >= 2 && (value.charAt(0) == '"' || value.charAt(0) == '\'') && value.charAt(len - 1) == value.charAt(0))
+			return value.substring(1, len - 1);
 		return value;
-	} // getValue(String)
+	} // unquote(String)
 
 	@Override
 	public String toString() {
-		return tagName + " " + attributes.toString();
+		return tagName + " " + attributes;
 	} // toString()
 	
 } // class Element
@@ -1,113 +1,281 @@
 package renderingengine;
 
-import java.util.function.Predicate;
-
 /**
  * This abstract class provides a partial implementation of a
- * String parser. 
- * 
+ * String parser.
+ *
  * <p> {@code Parser} parses a specified string by reading each character
  * while keeping track of its position in the string.
- * 
+ *
+ * <p> Scanning is driven by character classes looked up in a precomputed
+ * table, so no character is boxed while tokenizing. The scanning methods
+ * only move {@code currPos}; a token is a span {@code [start, end)} of
+ * {@code input} and becomes a {@code String} only when {@link #slice(int, int)}
+ * is called on it.
+ *
  */
 public abstract class Parser {
-	
+
+	// +-----------+-------------------------------
+	// | Constants |
+	// +-----------+
+
+	/** Whitespace characters, as defined by {@code Character.isWhitespace}. */
+	static final int WHITESPACE = 1;
+	/** Letters and digits, as defined by {@code Character.isLetterOrDigit}. */
+	static final int LETTER_OR_DIGIT = 2;
+	/** Characters allowed in a CSS identifier: letters, digits, '-', '_' and '%'. */
+	static final int IDENTIFIER = 4;
+	/** Characters of an unsigned decimal number: digits and '.'. */
+	static final int NUMBER = 8;
+
+	/** Character class bits of every ASCII character. */
+	private static final byte[] CHAR_CLASS = new byte[128];
+	static {
+		for (char c = 0; c < 128; c++) {
+			int bits = 0;
+			if (Character.isWhitespace(c))
+				bits |= WHITESPACE;
+			if (Character.isLetterOrDigit(c))
+				bits |= LETTER_OR_DIGIT | IDENTIFIER;
+			if (c == '-' || c == '_' || c == '%')
+				bits |= IDENTIFIER;
+			if (Character.isDigit(c) || c == '.')
+				bits |= NUMBER;
+			CHAR_CLASS[c] = (byte) bits;
+		}
+	}
+
 	// +--------+----------------------------------
 	// | Fields |
 	// +--------+
 	int currPos;
 	String input;
-	
+
 	// +--------------+---------------------------
 	// | Constructors |
 	// +--------------+
-	
+
 	/**
-	 * Constructs a parser out of the specified string.
-	 * 
-	 * @param str a String
+	 * Constructs a parser out of the specified character sequence, such as a
+	 * String or the {@code CharBuffer} of a loaded file.
+	 *
+	 * @param str a {@code CharSequence}
 	 */
-	public Parser(String str) {
+	public Parser(CharSequence str) {
 		this.currPos = 0;
-		this.input = str;
-		clean();
-	} // Parse(String)
-	
+		this.input = clean(str);
+	} // Parser(CharSequence)
+
+	/**
+	 * Constructs a parser with no input, for parsers that read their input
+	 * incrementally.
+	 */
+	protected Parser() {
+		this.currPos = 0;
+		this.input = "";
+	} // Parser()
+
 	// +---------+--------------------------------------------------
 	// | Methods |
 	// +---------+
-	
-	abstract void clean();
-	
+
+	/**
+	 * Creates the string to be parsed out of the raw input.
+	 *
+	 * @param raw a {@code CharSequence}
+	 * @return the string to be parsed
+	 */
+	abstract String clean(CharSequence raw);
+
+	/**
+	 * Tests if the specified character belongs to any of the specified
+	 * character classes.
+	 *
+	 * @param c a char
+	 * @param charClass a bitwise or of the character class constants
+	 * @return true if and only if c is in one of the classes of charClass
+	 */
+	static boolean inClass(char c, int charClass) {
+		if (c < 128)
+			return (CHAR_CLASS[c] & charClass) != 0;
+		return ((charClass & WHITESPACE) != 0 && Character.isWhitespace(c))
+				|| ((charClass & (LETTER_OR_DIGIT | IDENTIFIER)) != 0 && Character.isLetterOrDigit(c))
+				|| ((charClass & NUMBER) != 0 && Character.isDigit(c));
+	} // inClass(char, int)
+
 	/**
 	 * Checks if our parser has reached the end of the html string.
-	 * 
+	 *
 	 * @return true if and only if we have not reached the end of the string.
 	 */
 	public boolean eof() {
 		return (currPos >= input.length());
 	} // eof()
-	
+
 	/**
-	 * Creates a substring starting with the char at currpos of the String input to
-	 * up until the char fails to satisfy charTest
-	 * 
-	 * @param charTest, a Predicate
-	 * @return the first substring starting from currpos consisting only of
-	 *         characters satisfying the Predicate charTest
-	 */
-	public String consumeWhile(Predicate<Character> charTest) {
-		String res = "";
-
-		while (!eof() && charTest.test((Character) (input.charAt(currPos)))) {
-			char c = input.charAt(currPos);
-			if (Character.isWhitespace(c)) {
-				res += ' ';
-			} else {
-				res += c;
-			}
+	 * Moves currPos past every character, starting from currPos, that belongs
+	 * to charClass.
+	 *
+	 * @param charClass a bitwise or of the character class constants
+	 * @return the end of the scanned span, which is the new currPos
+	 */
+	public int skipWhile(int charClass) {
+		int len = input.length();
+		while (currPos < len && inClass(input.charAt(currPos), charClass))
+			currPos++;
+		return currPos;
+	} // skipWhile(int)
+
+	/**
+	 * Moves currPos to the first character, starting from currPos, that belongs
+	 * to charClass, or to the end of input if there is none.
+	 *
+	 * @param charClass a bitwise or of the character class constants
+	 * @return the end of the scanned span, which is the new currPos
+	 */
+	public int skipUntilClass(int charClass) {
+		int len = input.length();
+		while (currPos < len && !inClass(input.charAt(currPos), charClass))
 			currPos++;
+		return currPos;
+	} // skipUntilClass(int)
+
+	/**
+	 * Moves currPos to the next occurrence of the specified character, or to
+	 * the end of input if there is none.
+	 *
+	 * @param stop a char
+	 * @return the end of the scanned span, which is the new currPos
+	 */
+	public int skipUntil(char stop) {
+		if (currPos < input.length()) {
+			int index = input.indexOf(stop, currPos);
+			currPos = (index < 0) ? input.length() : index;
 		}
-		return res;
-	} // consumeWhile()
-	
+		return currPos;
+	} // skipUntil(char)
+
+	/**
+	 * Creates the string of the span [start, end) of input. Every whitespace
+	 * character of the span is replaced by ' '.
+	 *
+	 * @param start an int
+	 * @param end an int
+	 * @return a String
+	 */
+	public String slice(int start, int end) {
+		return slice(input, start, end);
+	} // slice(int, int)
+
+	/**
+	 * Creates the string of the span [start, end) of the specified sequence.
+	 * Every whitespace character of the span is replaced by ' '.
+	 *
+	 * @param src a {@code CharSequence}
+	 * @param start an int
+	 * @param end an int
+	 * @return a String
+	 */
+	static String slice(CharSequence src, int start, int end) {
+		if (start >= end)
+			return "";
+		int i = start;
+		while (i < end) {
+			char c = src.charAt(i);
+			if (c != ' ' && inClass(c, WHITESPACE))
+				break;
+			i++;
+		}
+		if (i == end)
+			return src.subSequence(start, end).toString();
+
+		char[] res = new char[end - start];
+		for (i = start; i < end; i++) {
+			char c = src.charAt(i);
+			res[i - start] = inClass(c, WHITESPACE) ? ' ' : c;
+		}
+		return new String(res);
+	} // slice(CharSequence, int, int)
+
+	/**
+	 * Creates a substring starting with the char at currpos of the String input to
+	 * up until the char does not belong to charClass
+	 *
+	 * @param charClass a bitwise or of the character class constants
+	 * @return the first substring starting from currpos consisting only of
+	 *         characters of charClass
+	 */
+	public String consumeWhile(int charClass) {
+		int start = currPos;
+		return slice(start, skipWhile(charClass));
+	} // consumeWhile(int)
+
+	/**
+	 * Creates a substring starting with the char at currpos of the String input to
+	 * up until the next occurrence of the specified character
+	 *
+	 * @param stop a char
+	 * @return the first substring starting from currpos that does not contain stop
+	 */
+	public String consumeUntil(char stop) {
+		int start = currPos;
+		return slice(start, skipUntil(stop));
+	} // consumeUntil(char)
+
+	/**
+	 * Creates the atom of the span starting with the char at currpos up until
+	 * the char does not belong to charClass, without creating a String for a
+	 * name that is already known.
+	 *
+	 * @param charClass a bitwise or of the character class constants
+	 * @param lowerCase true if the name is folded to lower case
+	 * @return an {@code Atom}
+	 * @see Atom
+	 */
+	public Atom consumeAtom(int charClass, boolean lowerCase) {
+		int start = currPos;
+		int end = skipWhile(charClass);
+		return lowerCase ? Atom.lowerCase(input, start, end) : Atom.of(input, start, end);
+	} // consumeAtom(int, boolean)
+
 	/**
 	 * Changes currpos to the index of the next non-whitespace character. currpos is
 	 * unchanged if input.charAt(currpos) is not a whitespace character.
 	 */
 	public void consumeWhiteSpace() {
-		consumeWhile(c -> Character.isWhitespace(c));
+		skipWhile(WHITESPACE);
 	} // consumeWhiteSpace()
-	
+
 	/**
 	 * Counts the number of characters starting from currPos
-	 * that satisfies the predicate charTest
-	 * 
-	 * @param charTest a {@code Predicate<Character>}
-	 * @return the number of characters that satisfy charTest starting from and including
+	 * that belong to charClass
+	 *
+	 * @param charClass a bitwise or of the character class constants
+	 * @return the number of characters of charClass starting from and including
 	 * the character at currPos
 	 */
-	public int advanceWhile(Predicate<Character> charTest)
+	public int advanceWhile(int charClass)
 	{
 		int i = 0;
-		while(currPos + i < input.length() && charTest.test((Character) (input.charAt(currPos+i))))
+		while(currPos + i < input.length() && inClass(input.charAt(currPos + i), charClass))
 		{
 			i++;
 		}
 		if(currPos + i >= input.length())
 			return 0;
 		return i;
-	} // advanceWhile(Predicate<Character>)
-	
+	} // advanceWhile(int)
+
 	/**
 	 * Tests if there is a substring in input, beginning at currPos,
-	 * that is equivalent to the specified string. 
-	 * 
+	 * that is equivalent to the specified string.
+	 *
 	 * @param str a String
 	 * @return boolean
 	 */
 	public boolean beginsWith(String str) {
-		return (input.substring(currPos, currPos + str.length())).compareTo(str) == 0;
+		return input.startsWith(str, currPos);
 	} // beginsWith(String)
-	
+
 } // class Parser
@@ -0,0 +1,104 @@
+package renderingengine;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * The CSS properties that the engine styles, lays out or renders with.
+ *
+ * <p> The ordinal of a property is its id. A {@code ComputedStyle} keeps
+ * the inherited properties and the others in two groups, in which the
+ * property's slot is its index in {@link #INHERITED} or {@link #BOX}. A
+ * declaration of any other property is kept in its {@code Stylesheet} but
+ * has no effect.
+ */
+public enum Property {
+
+	DISPLAY("display", false),
+	WIDTH("width", false),
+	HEIGHT("height", false),
+	MARGIN_TOP("margin-top", false),
+	MARGIN_RIGHT("margin-right", false),
+	MARGIN_BOTTOM("margin-bottom", false),
+	MARGIN_LEFT("margin-left", false),
+	PADDING_TOP("padding-top", false),
+	PADDING_RIGHT("padding-right", false),
+	PADDING_BOTTOM("padding-bottom", false),
+	PADDING_LEFT("padding-left", false),
+	BORDER_WIDTH("border-width", false),
+	BORDER_TOP_WIDTH("border-top-width", false),
+	BORDER_RIGHT_WIDTH("border-right-width", false),
+	BORDER_BOTTOM_WIDTH("border-bottom-width", false),
+	BORDER_LEFT_WIDTH("border-left-width", false),
+	BORDER_COLOR("border-color", false),
+	BACKGROUND_COLOR("background-color", false),
+	COLOR("color", true),
+	FONT_FAMILY("font-family", true),
+	FONT_STYLE("font-style", true),
+	FONT_WEIGHT("font-weight", true),
+	FONT_SIZE("font-size", true);
+
+	// +-----------+-------------------------------
+	// | Constants |
+	// +-----------+
+
+	/** The properties, indexed by id. */
+	static final Property[] VALUES = values();
+	/** The number of properties. */
+	static final int COUNT = VALUES.length;
+	/** The inherited properties, indexed by slot. */
+	static final Property[] INHERITED;
+	/** The properties that are not inherited, the box model, indexed by slot. */
+	static final Property[] BOX;
+
+	private static final HashMap<String, Property> BY_NAME = new HashMap<String, Property>();
+
+	static {
+		ArrayList<Property> inherited = new ArrayList<Property>();
+		ArrayList<Property> box = new ArrayList<Property>();
+		for (Property p : VALUES) {
+			BY_NAME.put(p.name, p);
+			ArrayList<Property> group = p.inherited ? inherited : box;
+			p.slot = group.size();
+			group.add(p);
+		}
+		INHERITED = inherited.toArray(new Property[inherited.size()]);
+		BOX = box.toArray(new Property[box.size()]);
+	}
+
+	// +--------+----------------------------------
+	// | Fields |
+	// +--------+
+	final String name;
+	final boolean inherited; // whether a node takes the value of its parent by default
+	int slot; // the index of the property in its group
+
+	// +--------------+---------------------------
+	// | Constructors |
+	// +--------------+
+
+	private Property(String name, boolean inherited) {
+		this.name = name;
+		this.inherited = inherited;
+	} // Property(String, boolean)
+
+	// +---------+--------------------------------------------------
+	// | Methods |
+	// +---------+
+
+	/**
+	 * Gets the property of the specified name.
+	 *
+	 * @param name a lower case property name, such as "margin-top"
+	 * @return a {@code Property}, or null if the engine does not use name
+	 */
+	public static Property of(String name) {
+		return BY_NAME.get(name);
+	} // of(String)
+
+	@Override
+	public String toString() {
+		return name;
+	} // toString()
+
+} // enum Property
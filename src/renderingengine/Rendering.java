@@ -89,15 +89,26 @@ public class Rendering {
 	}
 
 	/**
-	 * Render {@code LayoutBox} and its children
+	 * Render {@code LayoutBox}, the fragments of its text and its children in
+	 * preorder, so each box is painted over its parent
 	 * @param box is a {@code LayoutBox}
 	 */
 	public void renderLayoutBox(LayoutBox box) {
-		renderContent(box);
-		renderBorders(box);
-
-		for (LayoutBox child : box.children) {
-			renderLayoutBox(child);
+		ArrayList<LayoutBox> pending = new ArrayList<LayoutBox>();
+		pending.add(box);
+		while (!pending.isEmpty()) {
+			LayoutBox curr = pending.remove(pending.size() - 1);
+			renderContent(curr);
+			renderBorders(curr);
+
+			if (curr instanceof InlineNode && ((InlineNode) curr).fragments != null) {
+				ArrayList<InlineNode> fragments = ((InlineNode) curr).fragments;
+				for (int i = fragments.size() - 1; i >= 0; i--)
+					pending.add(fragments.get(i));
+			}
+			for (int i = curr.children.size() - 1; i >= 0; i--) {
+				pending.add(curr.children.get(i));
+			}
 		}
 	}
 
@@ -106,7 +117,7 @@ public class Rendering {
 	 * @param box is a {@code LayoutBox}
 	 */
 	public void renderContent(LayoutBox box) {
-		Color color = getColor(box, "background-color");
+		Color color = getColor(box, Property.BACKGROUND_COLOR);
 		if (color.exists) {
 			displayList.add(new SolidColor(color, box.dim.borderBox()));
 		}
@@ -114,8 +125,8 @@ public class Rendering {
 		else if (box instanceof InlineNode) {
 			InlineNode box1 = (InlineNode) box;
 
-			if (box1.stynode.tagName.compareTo("img") == 0) {
-				String src = box1.stynode.attributes.get("src");
+			if (box1.stynode.tagName == Atom.IMG) {
+				String src = box1.stynode.attribute("src");
 				src =  URL + src.replaceAll("\"", ""); 
 				double widthD = box1.dim.content.width;
 				double heightD = box1.dim.content.height;
@@ -136,8 +147,8 @@ public class Rendering {
 			}
 
 			else if (!box1.stynode.cont.txt.equals(""))
-				displayList.add(new DisplayText(box1.stynode.cont.txt, box1.stynode.cont.font, box1.dim.content,
-						getColor(box, "color")));
+				displayList.add(new DisplayText(box1.text(), box1.stynode.cont.font, box1.dim.content,
+						getColor(box, Property.COLOR)));
 		}
 
 	}
@@ -147,7 +158,7 @@ public class Rendering {
 	 * @param box is a {@code LayoutBox}
 	 */
 	public void renderBorders(LayoutBox box) {
-		Color color = getColor(box, "border-color");
+		Color color = getColor(box, Property.BORDER_COLOR);
 		if (!color.exists)
 			return;
 
@@ -168,19 +179,17 @@ public class Rendering {
 	/**
 	 * Get given color property from stynode field of {@code LayoutBox} box
 	 * @param box is a {@code LayoutBox} 
-	 * @param property is a String representing the color attribute which has to be looked up
-	 * @return 
+	 * @param property is a {@code Property} representing the color attribute which has to be looked up
+	 * @return the {@code Color} of property, or {@code Color.NONE}
 	 */
-	public Color getColor(LayoutBox box, String property) {
-		Value val = null;
+	public Color getColor(LayoutBox box, Property property) {
 		if (box instanceof BlockNode) 
-			val = ((BlockNode)box).stynode.getValue(property);
+			return ((BlockNode)box).stynode.style.color(property);
 
 		else if (box instanceof InlineNode) 
-			val = ((InlineNode)box).stynode.getValue(property);
+			return ((InlineNode)box).stynode.style.color(property);
 
-		Color color = val instanceof Color ? (Color) val : new Color(false);
-		return color;
+		return Color.NONE;
 	}
 
 } // class Rendering
@@ -0,0 +1,97 @@
+package renderingengine;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Loads local html and css files for the parsers.
+ *
+ * <p> A file is read with a single bulk read, or memory-mapped when it is
+ * large, and decoded in one pass into a {@code CharBuffer}, which
+ * {@code HTMLParser} and {@code CSSParser} can consume directly. Line breaks
+ * are kept.
+ */
+public class ResourceLoader {
+
+	// +-----------+-------------------------------
+	// | Constants |
+	// +-----------+
+
+	/** Files of at least this many bytes are memory-mapped instead of read. */
+	static final long MAP_THRESHOLD = 1 << 16;
+
+	// +---------+--------------------------------------------------
+	// | Methods |
+	// +---------+
+
+	/**
+	 * Loads the specified file, decoded as UTF-8.
+	 *
+	 * @param f a {@code File}
+	 * @return a {@code CharBuffer} holding the characters of the file
+	 * @throws IOException if the file cannot be read
+	 */
+	public static CharBuffer load(File f) throws IOException {
+		return load(f, StandardCharsets.UTF_8);
+	} // load(File)
+
+	/**
+	 * Loads the specified file, decoded with the specified charset.
+	 * Malformed input is replaced rather than rejected.
+	 *
+	 * @param f a {@code File}
+	 * @param charset a {@code Charset}
+	 * @return a {@code CharBuffer} holding the characters of the file
+	 * @throws IOException if the file cannot be read
+	 */
+	public static CharBuffer load(File f, Charset charset) throws IOException {
+		try (FileChannel channel = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+			long size = channel.size();
+			ByteBuffer bytes;
+			if (size >= MAP_THRESHOLD) {
+				bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			} else {
+				bytes = ByteBuffer.allocate((int) size);
+				while (bytes.hasRemaining() && channel.read(bytes) >= 0)
+					;
+				bytes.flip();
+			}
+			return decode(bytes, charset);
+		}
+	} // load(File, Charset)
+
+	/**
+	 * Loads the specified file as a string, decoded as UTF-8.
+	 *
+	 * @param f a {@code File}
+	 * @return a String holding the characters of the file
+	 * @throws IOException if the file cannot be read
+	 */
+	public static String loadString(File f) throws IOException {
+		return load(f).toString();
+	} // loadString(File)
+
+	/**
+	 * Decodes the specified bytes in one pass.
+	 *
+	 * @param bytes a {@code ByteBuffer}
+	 * @param charset a {@code Charset}
+	 * @return a {@code CharBuffer}
+	 * @throws CharacterCodingException never, since errors are replaced
+	 */
+	static CharBuffer decode(ByteBuffer bytes, Charset charset) throws CharacterCodingException {
+		CharsetDecoder decoder = charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		return decoder.decode(bytes);
+	} // decode(ByteBuffer, Charset)
+
+} // class ResourceLoader
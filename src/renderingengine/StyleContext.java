@@ -0,0 +1,226 @@
+package renderingengine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * {@code StyleContext} is the state of one traversal that styles a tree: the
+ * ancestors of the element being styled, the outermost first, kept with an
+ * {@code AncestorFilter} of their names, and the {@code StyleSharingCache} of
+ * the traversal. The traversal enters an element once it is styled and leaves
+ * it once its subtree is, so the ancestors only change at the end.
+ *
+ * <p> The context also keeps, for each ancestor, whether the numbered
+ * ancestor parts of the descendant selectors of one stylesheet are matched at
+ * or above it. These results stay valid for every descendant of the ancestor,
+ * so the siblings and cousins of an element reuse them. Each ancestor has a
+ * stamp, and a result is only valid while it holds the stamp of its ancestor,
+ * so nothing is cleared when an element is left.
+ *
+ * <p> The context also holds the lists that
+ * {@code Stylesheet.candidates} fills for each element, so styling an element
+ * allocates none.
+ *
+ * <p> The ancestors are also linked from the innermost up as a chain of
+ * immutable {@code Ancestor} links, which a task styling a subtree in
+ * parallel shares with the traversal that forked it instead of copying
+ * them.
+ */
+final class StyleContext {
+
+	// +-----------+-------------------------------
+	// | Constants |
+	// +-----------+
+	static final int UNKNOWN = -1;
+	static final int UNMATCHED = 0;
+	static final int MATCHED = 1;
+
+	// +--------+----------------------------------
+	// | Fields |
+	// +--------+
+	private final ArrayList<Element> ancestors;
+	private Ancestor innermost; // the chain of the ancestors, or null
+	final AncestorFilter filter;
+	final StyleSharingCache sharing;
+	private Stylesheet sheet; // the stylesheet whose parts are kept
+	private int generation; // the last stamp given
+	private int[] stamps; // the stamp of the ancestor at each index
+	private int[][] memo; // per ancestor and part: the stamp, shifted, or'd with the result
+	final ArrayList<RuleEntry> candidates; // the candidate selectors of the element being styled
+	final ArrayList<ArrayList<RuleEntry>> buckets; // the index buckets merged into candidates
+	int[] cursors; // the position reached in each bucket while merging
+
+	// +--------------+---------------------------
+	// | Constructors |
+	// +--------------+
+
+	/**
+	 * Constructs a {@code StyleContext} with no ancestors.
+	 */
+	public StyleContext() {
+		ancestors = new ArrayList<Element>();
+		innermost = null;
+		filter = new AncestorFilter();
+		sharing = new StyleSharingCache();
+		sheet = null;
+		generation = 0;
+		stamps = new int[16];
+		memo = new int[16][];
+		candidates = new ArrayList<RuleEntry>();
+		buckets = new ArrayList<ArrayList<RuleEntry>>();
+		cursors = new int[8];
+	} // StyleContext()
+
+	/**
+	 * Constructs a {@code StyleContext} whose ancestors are those of the
+	 * specified chain. The chain itself is shared, and only the filter and
+	 * the list of this context are filled from it.
+	 *
+	 * @param chain the innermost {@code Ancestor}, or null
+	 */
+	public StyleContext(Ancestor chain) {
+		this();
+		if (chain != null) {
+			Element[] path = new Element[chain.depth + 1];
+			for (Ancestor a = chain; a != null; a = a.parent)
+				path[a.depth] = a.element;
+			for (int i = 0; i < path.length; i++)
+				push(path[i]);
+			innermost = chain;
+		}
+	} // StyleContext(Ancestor)
+
+	// +---------+--------------------------------------------------
+	// | Methods |
+	// +---------+
+
+	/**
+	 * Adds the specified element as the innermost ancestor.
+	 *
+	 * @param el an {@code Element}
+	 */
+	public void enter(Element el) {
+		innermost = new Ancestor(el, innermost);
+		push(el);
+	} // enter(Element)
+
+	/**
+	 * Removes the innermost ancestor.
+	 *
+	 * @return the {@code Element} removed
+	 */
+	public Element leave() {
+		Element el = ancestors.remove(ancestors.size() - 1);
+		filter.pop(el);
+		innermost = innermost.parent;
+		return el;
+	} // leave()
+
+	/**
+	 * Gets the chain of the ancestors, which does not change as this context
+	 * enters and leaves elements.
+	 *
+	 * @return the innermost {@code Ancestor}, or null if there is none
+	 */
+	public Ancestor chain() {
+		return innermost;
+	} // chain()
+
+	/**
+	 * Adds the specified element as the innermost ancestor, without linking
+	 * it to the chain.
+	 */
+	private void push(Element el) {
+		int index = ancestors.size();
+		if (index == stamps.length) {
+			stamps = Arrays.copyOf(stamps, 2 * index);
+			memo = Arrays.copyOf(memo, 2 * index);
+		}
+		stamps[index] = ++generation;
+		filter.push(el);
+		ancestors.add(el);
+	} // push(Element)
+
+	/**
+	 * Gets the number of ancestors.
+	 *
+	 * @return an int
+	 */
+	public int size() {
+		return ancestors.size();
+	} // size()
+
+	/**
+	 * Gets the ancestor at the specified index, 0 being the outermost.
+	 *
+	 * @param index an int smaller than {@link #size()}
+	 * @return an {@code Element}
+	 */
+	public Element get(int index) {
+		return ancestors.get(index);
+	} // get(int)
+
+	/**
+	 * Keeps the results of the parts of the specified stylesheet, dropping
+	 * those of any other.
+	 *
+	 * @param sheet a {@code Stylesheet}
+	 */
+	void useSheet(Stylesheet sheet) {
+		if (this.sheet != sheet) {
+			this.sheet = sheet;
+			memo = new int[memo.length][];
+		}
+	} // useSheet(Stylesheet)
+
+	/**
+	 * Gets whether the specified part is matched at or above the ancestor at
+	 * the specified index.
+	 *
+	 * @param index an index of an ancestor
+	 * @param part a part number
+	 * @return {@code MATCHED}, {@code UNMATCHED} or {@code UNKNOWN}
+	 */
+	int memo(int index, int part) {
+		int[] row = memo[index];
+		if (row == null || part >= row.length)
+			return UNKNOWN;
+		int entry = row[part];
+		return ((entry >>> 1) == stamps[index]) ? (entry & 1) : UNKNOWN;
+	} // memo(int, int)
+
+	/**
+	 * Keeps whether the specified part is matched at or above the ancestor at
+	 * the specified index.
+	 *
+	 * @param index an index of an ancestor
+	 * @param part a part number
+	 * @param matched a boolean
+	 */
+	void setMemo(int index, int part, boolean matched) {
+		int[] row = memo[index];
+		if (row == null || part >= row.length) {
+			int length = Math.max(part + 1, (sheet == null) ? 2 * part : sheet.partCount);
+			row = (row == null) ? new int[length] : Arrays.copyOf(row, length);
+			memo[index] = row;
+		}
+		row[part] = (stamps[index] << 1) | (matched ? MATCHED : UNMATCHED);
+	} // setMemo(int, int, boolean)
+
+	/**
+	 * {@code Ancestor} is a link of the chain of the ancestors of an element:
+	 * an ancestor and the link of its parent.
+	 */
+	static final class Ancestor {
+		final Element element;
+		final Ancestor parent; // null for the outermost ancestor
+		final int depth; // the index of element among the ancestors
+
+		Ancestor(Element element, Ancestor parent) {
+			this.element = element;
+			this.parent = parent;
+			this.depth = (parent == null) ? 0 : parent.depth + 1;
+		} // Ancestor(Element, Ancestor)
+	} // class Ancestor
+
+} // class StyleContext
@@ -0,0 +1,132 @@
+package renderingengine;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <p>
+ * {@code StyleSharingCache} keeps the styles of recently styled nodes, so that a node
+ * with the same inputs takes one by reference instead of matching the rules again
+ * <p>
+ * 
+ * The inputs of an element are its tag and classes, its parent's style and its ancestors.
+ * These are compared through the lineage of the parent rather than its style, since equal
+ * styles are one object whatever the ancestors: a node's lineage is the kept key of its inputs,
+ * so two nodes whose parents have the same lineage have parents with the same inputs, and so,
+ * from the root down, ancestors with the same tags and classes and no id, which match the same
+ * selectors. An element with an id is never shared, and is its own lineage.
+ * The cache serves one traversal of one stylesheet, and the shared styles are frozen
+ */
+class StyleSharingCache
+{
+	// +-----------+-------------------------------
+	// | Constants |
+	// +-----------+
+	static final int CAPACITY = 1024;
+
+	// +--------+----------------------------------
+	// | Fields |
+	// +--------+
+	Stylesheet sheet;
+	LinkedHashMap<Key, Key> recent; // each key kept as its own value, with its style
+
+	// +--------------+-------------------------------------------
+	// | Constructors |
+	// +--------------+
+
+	/**
+	 * Constructs an empty {@code StyleSharingCache} that keeps the most recently used entries
+	 */
+	public StyleSharingCache(){
+		sheet = null;
+		recent = new LinkedHashMap<Key, Key>(CAPACITY, 0.75f, true){
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, Key> eldest){
+				return size() > CAPACITY;
+			}
+		};
+	}
+
+	// +---------+--------------------------------------------------
+	// | Methods |
+	// +---------+
+
+	/**
+	 * Makes the key of the inputs of a node, dropping every entry if sheet is not the stylesheet of the cache
+	 * @param sheet is the {@code Stylesheet} n is styled with
+	 * @param n is a {@code Node}
+	 * @param parent is the styled parent of n, or null
+	 * @return a {@code Key}, or null if n cannot share its style
+	 */
+	public Key key(Stylesheet sheet, Node n, StyledNode parent){
+		if(this.sheet != sheet){
+			this.sheet = sheet;
+			recent.clear();
+		}
+		Object parentLineage = (parent == null) ? null : parent.lineage;
+		if(n instanceof Element){
+			Element el = (Element) n;
+			if(el.id != Atom.EMPTY)
+				return null;
+			return new Key(parentLineage, el.tagName, el.classes);
+		}
+		return new Key(parentLineage, null, Element.NO_CLASSES);
+	}
+
+	/**
+	 * Get the kept key equal to key, which holds the shared style
+	 * @param key is a {@code Key}
+	 * @return a {@code Key}, or null
+	 */
+	public Key get(Key key){
+		return recent.get(key);
+	}
+
+	/**
+	 * Keep the style of the node with the given key
+	 * @param key is a {@code Key}
+	 * @param style is a {@code ComputedStyle} that will be shared
+	 */
+	public void put(Key key, ComputedStyle style){
+		key.style = style;
+		recent.put(key, key);
+	}
+
+	/**
+	 * {@code Key} is the inputs of the style of a node; a text node has a null tag
+	 * A kept key holds the style of the node it was made for, and is the lineage of the nodes with these inputs
+	 */
+	static final class Key
+	{
+		final Object parentLineage;
+		final Atom tagName;
+		final Atom[] classes;
+		final int hash;
+		ComputedStyle style;
+
+		Key(Object parentLineage, Atom tagName, Atom[] classes){
+			this.parentLineage = parentLineage;
+			this.tagName = tagName;
+			this.classes = classes;
+			this.hash = 31 * (31 * System.identityHashCode(parentLineage) + System.identityHashCode(tagName))
+					+ Arrays.hashCode(classes);
+		}
+
+		@Override
+		public int hashCode(){
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj){
+			if(!(obj instanceof Key))
+				return false;
+			Key other = (Key) obj;
+			return parentLineage == other.parentLineage && tagName == other.tagName
+					&& Arrays.equals(classes, other.classes);
+		}
+	}
+}
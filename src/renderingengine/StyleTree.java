@@ -4,9 +4,10 @@ package renderingengine;
 import java.awt.Font;
 import java.io.FileNotFoundException;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
-import java.util.Map.Entry;
+import java.util.IdentityHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * <p>
@@ -19,6 +20,13 @@ import java.util.Map.Entry;
  *     </a>
  */
 public class StyleTree{
+	// +-----------+-------------------------------
+	// | Constants |
+	// +-----------+
+
+	/** The font size in px of a node with no font size */
+	static final double DEFAULT_FONT_SIZE = 18;
+
 	// +--------+----------------------------------
 	// | Fields |
 	// +--------+
@@ -35,8 +43,83 @@ public class StyleTree{
 	 * @param sheet a {@code StyleSheet}
 	 */
 	public StyleTree(DOM dom, Stylesheet sheet){
-		ArrayList<Element> ancestors = new ArrayList<Element>();
-		root = StyleNode(dom.root,null,sheet,ancestors);	
+		this(dom, sheet, false);
+	}
+
+	/**
+	 * Constructs a {@code StyleTree} by attaching the specified {@code StyleSheet} with the {@code DOM}
+	 * In parallel mode, where a node has at least two subtrees of {@code ForkRoots.PARALLEL_THRESHOLD} nodes or more,
+	 * each of them is styled by a task of the common {@code ForkJoinPool}, which shares the chain of its
+	 * ancestors; the tree is the same as in sequential mode
+	 * 
+	 * @param dom a {@code DOM}
+	 * @param sheet a {@code StyleSheet}
+	 * @param parallel is true to style subtrees in parallel
+	 */
+	public StyleTree(DOM dom, Stylesheet sheet, boolean parallel){
+		if(parallel){
+			StyleTask task = new StyleTask(this, dom.root, null, sheet, null, forkRoots(dom.root), 0);
+			ForkJoinPool.commonPool().invoke(task);
+			root = task.result;
+		}
+		else{
+			root = StyleNode(dom.root,null,sheet,new StyleContext());
+		}
+	}
+
+	/**
+	 * Constructs a {@code StyleTree} by attaching the specified {@code StyleSheet} with the {@code CompactDOM}
+	 * The nodes are visited in preorder by following the parent, first child and next sibling links.
+	 * Each element is matched through an {@code Element} view made by {@code CompactDOM.element},
+	 * one per depth, so no object is made per node but its {@code StyledNode},
+	 * which reads its attributes from dom when they are needed
+	 * 
+	 * @param dom a {@code CompactDOM}
+	 * @param sheet a {@code StyleSheet}
+	 */
+	public StyleTree(CompactDOM dom, Stylesheet sheet){
+		StyleContext context = new StyleContext();
+		ArrayList<StyledNode> path = new ArrayList<StyledNode>(); // styled ancestors of n
+		ArrayList<Element> views = new ArrayList<Element>(); // the view of the element at each depth
+		Text text = new Text(); // the view of a text node
+		int top = dom.root();
+		int n = top;
+		while(n != CompactDOM.NONE){
+			StyledNode parent = path.isEmpty() ? null : path.get(path.size()-1);
+			Node view = text;
+			if(dom.isElement(n)){
+				int depth = path.size();
+				if(depth == views.size())
+					views.add(dom.element(n, null));
+				view = dom.element(n, views.get(depth));
+			}
+			else
+				text.txt = dom.text(n);
+
+			StyledNode sn = styleSingleNode(view, parent, sheet, context);
+			sn.dom = dom;
+			sn.node = n;
+			if(parent == null)
+				root = sn;
+			else
+				parent.children.add(sn);
+
+			if(dom.firstChild(n) != CompactDOM.NONE){
+				path.add(sn);
+				n = dom.firstChild(n);
+				continue;
+			}
+
+			// n has no children: leave it, and every ancestor whose last child was left
+			if(dom.isElement(n))
+				context.leave();
+			while(n != top && dom.nextSibling(n) == CompactDOM.NONE){
+				n = dom.parent(n);
+				path.remove(path.size()-1);
+				context.leave();
+			}
+			n = (n == top) ? CompactDOM.NONE : dom.nextSibling(n);
+		}
 	}
 
 	// +---------+--------------------------------------------------
@@ -45,103 +128,216 @@ public class StyleTree{
 
 	/**
 	 * Creates a {@code StyledNode} from the given {@code Node} by traversing the rules of the {@code StyleSheet}
+	 * The subtree of n is styled in preorder, each node once its parent is styled, so it can
+	 * inherit from it
+	 * 
+	 * @param n a {@code Node} that needs to be styled
+	 * @param parent a {@code StyledNode} is the styled parent of n
+	 * @param sheet a {@code StyleSheet} is the stylesheet to be used for styling n
+	 * @param context a {@code StyleContext} holding the ancestors of n from the {@code DOM}
+	 * @return a {@code StyledNode} representing the node n after matching rules from sheet have been applied
+	 */
+	public StyledNode StyleNode(Node n, StyledNode parent, Stylesheet sheet, StyleContext context){
+		return styleSubtree(n, parent, sheet, context, null, null);
+	}
+
+	/**
+	 * Creates a {@code StyledNode} from the given {@code Node} and its subtree, like {@code StyleNode}
+	 * If forks is not null, each node of the subtree below n that is in forks is not styled here:
+	 * a {@code StyleTask} is forked for it instead, and added to forked, and its styled parent
+	 * gets a null child in its place until the task is joined
 	 * 
 	 * @param n a {@code Node} that needs to be styled
 	 * @param parent a {@code StyledNode} is the styled parent of n
 	 * @param sheet a {@code StyleSheet} is the stylesheet to be used for styling n
-	 * @param ancestors a {@code ArrayList} contains the ancestors of n from the {@code DOM}
+	 * @param context a {@code StyleContext} holding the ancestors of n from the {@code DOM}
+	 * @param forks a {@code IdentityHashMap} whose keys are the roots of the subtrees to fork, or null
+	 * @param forked a {@code ArrayList} that receives the forked tasks, or null
 	 * @return a {@code StyledNode} representing the node n after matching rules from sheet have been applied
 	 */
-	public StyledNode StyleNode(Node n, StyledNode parent, Stylesheet sheet, ArrayList<Element> ancestors){
+	StyledNode styleSubtree(Node n, StyledNode parent, Stylesheet sheet, StyleContext context,
+			IdentityHashMap<Node, Integer> forks, ArrayList<StyleTask> forked){
+		StyledNode root = null;
+		ArrayList<Node> pending = new ArrayList<Node>(); // nodes to style, null marks the exit of a node
+		ArrayList<Node> path = new ArrayList<Node>(); // nodes whose subtree is being styled
+		ArrayList<StyledNode> styledPath = new ArrayList<StyledNode>();
+		pending.add(n);
+
+		while(!pending.isEmpty()){
+			Node curr = pending.remove(pending.size()-1);
+			if(curr == null){
+				Node done = path.remove(path.size()-1);
+				styledPath.remove(styledPath.size()-1);
+				if(done instanceof Element)
+					context.leave();
+				continue;
+			}
+
+			StyledNode styledParent = styledPath.isEmpty() ? parent : styledPath.get(styledPath.size()-1);
+			if(forks != null && curr != n && forks.containsKey(curr)){
+				StyleTask task = new StyleTask(this, curr, styledParent, sheet, context.chain(), forks, styledParent.children.size());
+				styledParent.children.add(null);
+				task.fork();
+				forked.add(task);
+				continue;
+			}
+
+			StyledNode sn = styleSingleNode(curr, styledParent, sheet, context);
+			if(root == null)
+				root = sn;
+			else
+				styledParent.children.add(sn);
+
+			path.add(curr);
+			styledPath.add(sn);
+			pending.add(null);
+			for(int i = curr.children.size()-1; i >= 0; i--)
+				pending.add(curr.children.get(i));
+		}
+
+		return root;
+	}
+
+	/**
+	 * Finds the subtrees to style by tasks of their own: the large children of each node
+	 * that has at least two, as long as the node is in fewer than {@code ForkRoots.MAX_FORK_DEPTH} of them.
+	 * A node with a single large child keeps it in its own task, so a deep chain of nodes
+	 * is styled by one task
+	 * 
+	 * @param n a {@code Node}
+	 * @return a {@code IdentityHashMap} from the root of each subtree to fork to the number of tasks it is in
+	 */
+	static IdentityHashMap<Node, Integer> forkRoots(Node n){
+		ForkRoots<Node> roots = new ForkRoots<Node>(){
+			ArrayList<Node> children(Node node){
+				return node.children;
+			}
+
+			boolean forks(Node node, int large){
+				return large >= 2;
+			}
+		};
+		return roots.find(n);
+	}
+
+	/**
+	 * Creates a {@code StyledNode} from the given {@code Node}, without its children.
+	 * If n is an {@code Element}, context enters it once its rules are matched.
+	 * n takes by reference the style of a node styled before it with the same inputs,
+	 * if there is one in the style sharing cache of context, and takes the lineage of that node
+	 * 
+	 * @param n a {@code Node} that needs to be styled
+	 * @param parent a {@code StyledNode} is the styled parent of n
+	 * @param sheet a {@code StyleSheet} is the stylesheet to be used for styling n
+	 * @param context a {@code StyleContext} holding the ancestors of n from the {@code DOM}
+	 * @return a {@code StyledNode} with no children
+	 */
+	public StyledNode styleSingleNode(Node n, StyledNode parent, Stylesheet sheet, StyleContext context){
 		StyledNode sn = new StyledNode();
+		StyleSharingCache sharing = context.sharing;
+		StyleSharingCache.Key key = sharing.key(sheet, n, parent);
+		StyleSharingCache.Key kept = (key == null) ? null : sharing.get(key);
+		ComputedStyle shared = (kept == null) ? null : kept.style;
+		if(kept != null)
+			sn.lineage = kept;
+		else if(key != null)
+			sn.lineage = key;
+
 		if(n instanceof Element){	
 			sn.tagName = ((Element) n).tagName;
 			sn.attributes = ((Element) n).attributes;
-			sn.specifiedVals = matchingRules((Element) n, sheet,ancestors);
-			ancestors.add((Element) n);
+			if(shared == null)
+				sn.style = matchingRules((Element) n, sheet, context);
+			context.enter((Element) n);
 		}
 
-		inheritTextStyle(sn, parent);
+		if(shared != null)
+			sn.style = shared;
+		else{
+			inheritTextStyle(sn, parent);
+			if(key != null)
+				sharing.put(key, sn.style);
+		}
 
 		if(n instanceof Text){
 			sn.cont.txt = ((Text) n).txt;
 			styleText(sn);
 		}
-
-
-		for(Node child: n.children){
-			int last = ancestors.size();
-			sn.children.add(StyleNode(child,sn,sheet,ancestors));
-			ancestors.subList(last, ancestors.size()).clear();
-		}
+		else if(sn.tagName == Atom.BR)
+			styleText(sn); // a line break is as high as a line of its font
 
 		return sn;
 	}
 
 
 	/**
-	 * Inherit {@code Font} properties from parent to child {@code StyledNode}
+	 * Inherit the inherited properties, such as the {@code Font} properties and color, from parent to child {@code StyledNode}
+	 * A font size in percent is first resolved against the font size of parent
+	 * The style of sn is then frozen: it shares the inherited group of parent unless it overrides one of them
 	 * 
 	 * @param  sn is a {@code StyledNode} is a child node of parent
 	 * @param parent is a {@code StyledNode} 
 	 */
 	public void inheritTextStyle(StyledNode sn, StyledNode parent){
-		if(parent != null){
-			Value family = parent.getValue("font-family");
-			if(family.exists && !sn.getValue("font-family").exists){
-				sn.specifiedVals.put("font-family", family);
-			}
+		Value size = sn.style.get(Property.FONT_SIZE);
+		if(size instanceof Length && ((Length) size).isPercent()){
+			double base = (parent == null) ? DEFAULT_FONT_SIZE : fontSize(parent.style.get(Property.FONT_SIZE));
+			sn.style.set(Property.FONT_SIZE, new Length(ComputedStyle.resolve(size, base), "px"));
+		}
 
-			Value style = parent.getValue("font-style");
-			if(style.exists && !sn.getValue("font-style").exists){
-				sn.specifiedVals.put("font-style", style);
-			}
+		sn.style = sn.style.inherit((parent == null) ? null : parent.style);
+	}
 
-			Value weight = parent.getValue("font-weight");
-			if(weight.exists && !sn.getValue("font-weight").exists){
-				sn.specifiedVals.put("font-weight", weight);
-			}
+	/**
+	 * Finds the size in px of a font-size value
+	 * @param size is a {@code Value}
+	 * @return a double, {@code DEFAULT_FONT_SIZE} if size is not set or not known
+	 */
+	public static double fontSize(Value size){
+		if(size instanceof Keyword){
+			String val = ((Keyword) size).name.toLowerCase();
+			if(val.contains("xx-small"))
+				return 8;
 
-			Value size = parent.getValue("font-size");
-			if(size.exists && !sn.getValue("font-size").exists){
-				sn.specifiedVals.put("font-size", size);
-			}
+			else if(val.contains("x-small"))
+				return 13;
 
-			Value color = parent.getValue("color");
-			if(color.exists && !sn.getValue("color").exists){
-				sn.specifiedVals.put("color", color);
-			}
+			else if(val.contains("small"))
+				return 18;
 
-			for(Entry<String,Value> e: sn.specifiedVals.entrySet())
-			{
-				if(e.getKey().contains("REL-"))
-				{
-					String key = e.getKey().replace("REL-", "");
-					if(parent.specifiedVals.containsKey(key))
-					{
-						Length childVal = (Length) e.getValue();
-						Length parentVal = (Length) parent.getValue(key);
-						e.setValue(new Length(childVal.len*childVal.len/100,parentVal.unit));
-					}
-				}
+			else if(val.contains("medium"))
+				return 23;
 
-			}
+			else if(val.contains("xx-large"))
+				return 36;
+
+			else if(val.contains("x-large"))
+				return 31;
+
+			else if(val.contains("large"))
+				return 28;
 		}
+
+		else if(size instanceof Length){
+			return ((Length) size).len;
+		}	
+		return DEFAULT_FONT_SIZE;
 	}
 
 	/**
 	 * Style the text (if it exists) contained in the current node  
 	 * Default font is Arial Plain with size 18pt
+	 * The font is taken from the {@code FontCache}, so text with the same font shares one {@code Font}
 	 * @param sn is a {@code StyledNode} whose font attributes have to be applied to the text it contains
 	 */
 	public void styleText(StyledNode sn){
-		Value family0 = sn.getValue("font-family");
+		Value family0 = sn.style.get(Property.FONT_FAMILY);
 		String family = "Arial";
 		if(family0.exists){
 			family = ((Keyword) family0).name;
 		}
 
-		Value style0 =  sn.getValue("font-style");
+		Value style0 =  sn.style.get(Property.FONT_STYLE);
 		int style = Font.PLAIN;
 		if(style0.exists){
 			String val = ((Keyword) style0).name;
@@ -150,7 +346,7 @@ public class StyleTree{
 				style = Font.ITALIC;
 		}
 
-		Value weight0 = sn.getValue("font-weight");
+		Value weight0 = sn.style.get(Property.FONT_WEIGHT);
 		String weight = "";
 		if(weight0.exists){
 			if(weight0 instanceof Keyword){
@@ -166,47 +362,9 @@ public class StyleTree{
 			}	
 		}
 
-		Value size0 =  sn.getValue("font-size");
-		int size = 	18;
-		if(size0.exists){
-			if(size0 instanceof Keyword){
-				String val = ((Keyword) weight0).name.toLowerCase();
-				if(val.contains("xx-small"))
-					size = 8;
-
-				else if(val.contains("x-small"))
-					size = 13;
+		int size = (int) fontSize(sn.style.get(Property.FONT_SIZE));
 
-				else if(val.contains("small"))
-					size = 18;
-
-				else if(val.contains("medium"))
-					size = 23;
-
-				else if(val.contains("xx-large"))
-					size = 36;
-
-				else if(val.contains("x-large"))
-					size = 31;
-
-				else if(val.contains("large"))
-					size = 28;
-			}
-
-			else if(size0 instanceof Length){
-				size = (int) ((Length) size0).len;
-			}	
-		}
-
-
-		try{
-			Font font = new Font(family + " " + weight, style, size*3/4); //convert to size to pt from px
-			sn.cont.font = font;
-		}
-		catch(Exception e)
-		{
-			sn.cont.font = new Font("Arial", Font.PLAIN, 18);
-		}
+		sn.cont.font = FontCache.get(family, weight, style, size*3/4); //convert to size to pt from px
 	}
 
 	/**
@@ -214,15 +372,15 @@ public class StyleTree{
 	 * 
 	 * @param el is a {@code Element} that needs to be matched with the given selector
 	 * @param selector is a {@code Selector} 
-	 * @param ancestors is a {@code ArrayList} of Elements containing the descendants of el extracted from the {@code DOM}
+	 * @param context is a {@code StyleContext} holding the ancestors of el extracted from the {@code DOM}
 	 * @return true if el matches selector otherwise false
 	 */
-	public boolean matches(Element el, Selector selector, ArrayList<Element> ancestors){
+	public boolean matches(Element el, Selector selector, StyleContext context){
 		if (selector instanceof SimpleSelector)
 			return matchesSimpleSelector(el, (SimpleSelector) selector);
 
 		if(selector instanceof DescendantSelector)
-			return matchesDescendantSelector(el, (DescendantSelector) selector, ancestors);
+			return matchesDescendantSelector(el, (DescendantSelector) selector, context);
 
 		return false;
 	}
@@ -235,26 +393,14 @@ public class StyleTree{
 	 * @return true if el matches selector otherwise false
 	 */
 	public boolean matchesSimpleSelector(Element el, SimpleSelector selector){
-		String elName = el.tagName;
-		if(selector.tagName.compareTo("")!= 0 && elName.compareTo(selector.tagName) != 0)
+		if(selector.tagName != Atom.EMPTY && el.tagName != selector.tagName)
 			return false;
 
-		String elId = el.getValue("id").get(0);
-		if(selector.id.compareTo("")!= 0 && elId.compareTo(selector.id) != 0)
+		if(selector.id != Atom.EMPTY && el.id != selector.id)
 			return false;
 
-		ArrayList<String> elClasses = el.getValue("class");
-		for(String clas: selector.classes){
-			boolean flag = false;
-			for(String eClas: elClasses){
-				if(!validIdentifierChar(eClas.charAt(0)))
-					eClas = eClas.substring(1,eClas.length()-1);
-				if(eClas.compareTo(clas) == 0){
-					flag = true;
-					break;
-				}
-			}
-			if(!flag)
+		for(int i = 0; i < selector.classes.size(); i++){
+			if(!el.hasClass(selector.classes.get(i)))
 				return false;
 		}
 		return true;
@@ -262,70 +408,115 @@ public class StyleTree{
 
 	/**
 	 * Checks if a {@code DescendantSelector} matches an {@code Element}
+	 * The chain is matched right to left: el must match its last part, then each part before it
+	 * must be matched by an ancestor above the one that matched the next part.
+	 * The filter of context rejects most selectors before the ancestors are walked,
+	 * and the ancestor parts matched for an ancestor are kept for its other descendants
 	 * 
 	 * @param el is a {@code el} that needs to be matched with the given descendant selector
 	 * @param selector is a {@code DescendantSelector} 
-	 * @param ancestors is a {@code ArrayList} of Elements containing the descendants of el extracted from the {@code DOM}
+	 * @param context is a {@code StyleContext} holding the ancestors of el extracted from the {@code DOM}
 	 * @return true if el matches selector otherwise false
 	 */
-	public boolean matchesDescendantSelector(Element el,  DescendantSelector selector, ArrayList<Element> ancestors){
-
-		if(!matchesSimpleSelector(el, selector.chain.get(selector.chain.size()-1)))
+	public boolean matchesDescendantSelector(Element el,  DescendantSelector selector, StyleContext context){
+		ArrayList<SimpleSelector> chain = selector.chain;
+		int last = chain.size()-1;
+		if(!matchesSimpleSelector(el, chain.get(last)))
 			return false;
 
-		boolean ancestFlag = false;
-		SimpleSelector first = selector.chain.get(0);
-		for(Element anc: ancestors){
-			if(matchesSimpleSelector(anc,first)){
-				ancestFlag = true;
-				break;
-			}
+		for(int j = 0; j < last; j++){
+			if(!context.filter.mightMatch(chain.get(j)))
+				return false;
 		}
-		if(!ancestFlag)
-			return false;
+		boolean keep = selector.owner != null; // else the parts are not numbered
+		if(keep)
+			context.useSheet(selector.owner);
 
-		return true;
+		return last == 0 || matchesAncestors(selector, last-1, context.size()-1, context, keep);
 	}
 
 	/**
-	 * Checks if a {@code char} is a valid HTML identifier
+	 * Checks if the parts 0 to j of the chain of a {@code DescendantSelector} are matched by ancestors,
+	 * part j by one of the ancestors 0 to d.
+	 * Part j only needs to be tried against the nearest ancestor that matches it, since any
+	 * ancestor above leaves fewer ancestors for the parts before j
 	 * 
-	 * @param c is a {@code char}
-	 * @return true if c is a letter, digit, '-', or '_' otherwise false
+	 * @param selector is a {@code DescendantSelector}
+	 * @param j is the index of a part of the chain of selector
+	 * @param d is the index of an ancestor, or -1
+	 * @param context is a {@code StyleContext} holding the ancestors, the outermost first
+	 * @param keep is true to use and keep the results of the parts in context
+	 * @return true if the parts match otherwise false
 	 */
-	public boolean validIdentifierChar(char c){
-		return (c == '-' || c == '_' || Character.isLetterOrDigit(c));
+	boolean matchesAncestors(DescendantSelector selector, int j, int d, StyleContext context, boolean keep){
+		int part = selector.memoBase + j;
+		SimpleSelector sel = selector.chain.get(j);
+		boolean found = false;
+		int k = d;
+		for(; k >= 0; k--){
+			int known = keep ? context.memo(k, part) : StyleContext.UNKNOWN;
+			if(known != StyleContext.UNKNOWN){
+				found = known == StyleContext.MATCHED;
+				break;
+			}
+			if(matchesSimpleSelector(context.get(k), sel)){
+				found = j == 0 || matchesAncestors(selector, j-1, k-1, context, keep);
+				break;
+			}
+		}
+
+		if(keep){
+			for(int i = d; i >= Math.max(k, 0); i--)
+				context.setMemo(i, part, found);
+		}
+		return found;
 	}
 
 
 	/**
 	 * Collects all rules matching an {@code Element} in the given {@code StyleSheet}
+	 * If sheet has a user agent origin, el starts from the template of its tag, and the
+	 * user agent rules that are not in the templates and then those of sheet are applied on top
 	 * 
 	 * @param el is a {@code Element} that needs to be matched
 	 * @param sheet is a {@code StyleSheet} 
-	 * @param ancestors is a {@code ArrayList} of Elements containing the descendants of el extracted from the {@code DOM}
-	 * @return a {@code HashMap<String,Value>} representing the attribute name and corresponding values that apply to el
+	 * @param context is a {@code StyleContext} holding the ancestors of el extracted from the {@code DOM}
+	 * @return a {@code ComputedStyle} holding the values of the properties that apply to el
 	 */
-	public HashMap<String, Value> matchingRules(Element el, Stylesheet sheet, ArrayList<Element> ancestors){
-		HashMap<String, Value> specifiedVals = new HashMap<String, Value>();
-		ArrayList<MatchedRule> match = new ArrayList<MatchedRule>();
-
-		for(Rule rule: sheet.rules){
-			for(Selector selector: rule.selectors){
-				if(matches(el, selector, ancestors)){
-					match.add(new MatchedRule(rule,selector.getSpec()));
-					break;
-				}
-			}
-		}
-		Collections.sort(match); //Sort by specificity in ascending order
+	public ComputedStyle matchingRules(Element el, Stylesheet sheet, StyleContext context){
+		UserAgentStyle userAgent = sheet.userAgent;
+		ComputedStyle style = (userAgent == null) ? new ComputedStyle() : userAgent.start(el.tagName);
+		if(userAgent != null && !userAgent.rest.rules.isEmpty())
+			applyRules(el, userAgent.rest, context, style);
+		applyRules(el, sheet, context, style);
+		return style; 
+	}
 
-		for(MatchedRule mrule: match){
-			for(Declaration decl: mrule.rule.declarations){
-				specifiedVals.put(decl.name, decl.value);
+	/**
+	 * Applies the declarations of the rules of sheet that match el to style, in cascade order
+	 * Only the candidate selectors filed under the id, classes and tag of el are tried.
+	 * They come in cascade order, so the declarations of each matching selector are applied
+	 * as it is found and no sorting is needed; a rule that matches through several selectors
+	 * is applied at each, and so ends up with the specificity of the most specific one
+	 * 
+	 * @param el is a {@code Element} that needs to be matched
+	 * @param sheet is a {@code StyleSheet} 
+	 * @param context is a {@code StyleContext} holding the ancestors of el extracted from the {@code DOM}
+	 * @param style is a {@code ComputedStyle} that is not frozen
+	 */
+	void applyRules(Element el, Stylesheet sheet, StyleContext context, ComputedStyle style){
+		sheet.candidates(el, context);
+		ArrayList<RuleEntry> candidates = context.candidates;
+
+		for(int i = 0; i < candidates.size(); i++){
+			RuleEntry entry = candidates.get(i);
+			if(matches(el, entry.selector, context)){
+				for(Declaration decl: entry.rule.declarations){
+					if(decl.property != null)
+						style.set(decl.property, decl.value);
+				}
 			}
 		}
-		return specifiedVals; 
 	}
 
 }
@@ -340,9 +531,12 @@ class StyledNode extends Node
 	// +--------+----------------------------------
 	// | Fields |
 	// +--------+
-	String tagName;
-	HashMap<String, Value> specifiedVals; 
-	HashMap<String, String> attributes;
+	Atom tagName;
+	ComputedStyle style; 
+	Object lineage; // the same object for nodes whose styles and ancestors' styles have the same inputs
+	HashMap<String, String> attributes; // the attributes of the element of a DOM, or null
+	CompactDOM dom; // the CompactDOM the node was styled from, which holds its attributes, or null
+	int node; // the node of dom
 	Text cont;
 
 	// +--------------+-------------------------------------------
@@ -354,115 +548,148 @@ class StyledNode extends Node
 	 */
 	public StyledNode(){
 		super();
-		specifiedVals = new HashMap<String, Value>();
-		attributes = new HashMap<String, String>();
+		style = ComputedStyle.EMPTY;
+		lineage = this;
+		attributes = null;
+		dom = null;
+		node = CompactDOM.NONE;
 		cont = new Text();
-		tagName = "";
+		tagName = Atom.EMPTY;
 	}
 
 	/**
-	 * Make a copy of the current object that points to the same specifiedVals as current object
+	 * Make a copy of the current object that points to the same style as current object
 	 * and has same tagName too. But a new copy of the cont field is made.
 	 * This method is required in splitting text when it is being laid out
 	 * @return a {@code StyledNode}
 	 */
 	public StyledNode copy(){
 		StyledNode copy = new StyledNode();
-		copy.specifiedVals = specifiedVals;
+		copy.style = style;
+		copy.lineage = lineage;
 		copy.cont.font = cont.font;
 		copy.cont.txt = cont.txt;
 		copy.tagName = tagName;
 		copy.attributes = attributes;
+		copy.dom = dom;
+		copy.node = node;
 		return copy;
 	}
 
 	/**
-	 * Get value corresponding to key from specifiedVals
+	 * Get the value of the attribute with the given name, read from the element this node styles
+	 * @param name is a lower case attribute name
+	 * @return a String, or null if there is no such attribute
+	 */
+	public String attribute(String name){
+		if(dom != null)
+			return dom.attribute(node, name);
+		return (attributes == null) ? null : attributes.get(name);
+	}
+
+	/**
+	 * Get value of the given property from style
+	 * @param p is a {@code Property}
+	 * @return the {@code Value} of p, or the shared {@code Value.UNSET}
+	 */
+	public Value getValue(Property p){
+		return style.get(p);
+	}
+
+	/**
+	 * Get value of the property with the given name from style
 	 * @param key is a {@code String}
-	 * @return the {@code Value} that key maps to in specifiedVals
+	 * @return the {@code Value} of the property named key, or the shared {@code Value.UNSET}
 	 */
 	public Value getValue(String key){
-		if(specifiedVals.containsKey(key))
-			return specifiedVals.get(key);
-
-		return new Value(false);
+		Property p = Property.of(key);
+		return (p == null) ? Value.UNSET : style.get(p);
 	}
 
 	/**
 	 * Get display property, with default value of "inline"
-	 * @return a {@code String}
+	 * @return {@code Atom.BLOCK}, {@code Atom.NONE} or {@code Atom.INLINE}
 	 */
-	public String display(){
-		Value val = getValue("display");
-		if(val instanceof Keyword){
-			Keyword prop = (Keyword) val;
-			if(prop.name.compareTo("block") == 0 || prop.name.compareTo("none") == 0)
-				return prop.name;
-		}
-		return "inline";
+	public Atom display(){
+		Atom val = style.keyword(Property.DISPLAY);
+		if(val == Atom.BLOCK || val == Atom.NONE)
+			return val;
+		return Atom.INLINE;
 	}
 
 	/**
-	 * Lookup specifiedVals for key; if key doesn't exist, try backup;
-	 * if backup also doesn't exist, then return fallback
-	 * @param key is a {@code String}
-	 * @param backup is a {@code String}
+	 * Lookup style for key; if key isn't set, try backup;
+	 * if backup also isn't set, then return fallback
+	 * @param key is a {@code Property}
+	 * @param backup is a {@code Property}
 	 * @param fallback is a default {@code Value} 
 	 * @return a {@code Value}
 	 */
-	public Value lookup(String key, String backup, Value fallback){
-		Value val1 = getValue(key);
-		if(val1.exists)
-			return val1;
-		Value val2 = getValue(backup);
-		if(val2.exists)
-			return val2;
-		return fallback;
+	public Value lookup(Property key, Property backup, Value fallback){
+		return style.lookup(key, backup, fallback);
 	}
 }
 
 /**
  * <p>
- * {@code MatchedRule} represents a pair ({@code Rule}, {@code Specificity})
- * It implements comparison with respect to Specificity
+ * {@code StyleTask} styles a subtree of the {@code DOM} in parallel mode
+ * It has its own {@code StyleContext}, made from the chain of the ancestors of its node, and forks
+ * a task for each subtree to fork below its node, whose result it puts in place once joined
  * <p>
  */
-class MatchedRule implements Comparable<MatchedRule>{
+class StyleTask extends RecursiveAction
+{
+	private static final long serialVersionUID = 1L;
+
 	// +--------+----------------------------------
 	// | Fields |
 	// +--------+
-	Rule rule;
-	Specificity spec;
+	StyleTree tree;
+	Node n;
+	StyledNode parent;
+	Stylesheet sheet;
+	StyleContext.Ancestor ancestors;
+	IdentityHashMap<Node, Integer> forks;
+	int index; // the index of the result in parent's children
+	StyledNode result;
 
 	// +--------------+-------------------------------------------
 	// | Constructors |
 	// +--------------+
 
 	/**
-	 * Constructs a {@code MatchedRule} object with given values
-	 * @param rule a {@code Rule}
-	 * @param spec a {@code Specificity}
+	 * Constructs a {@code StyleTask} for the subtree of n
+	 * @param tree is the {@code StyleTree} being built
+	 * @param n is the {@code Node} to style with its subtree
+	 * @param parent is the styled parent of n, or null
+	 * @param sheet is a {@code Stylesheet}
+	 * @param ancestors is the chain of the ancestors of n, or null
+	 * @param forks is the roots of the subtrees to fork, which are not modified
+	 * @param index is the index of the styled n in the children of parent
 	 */
-	public MatchedRule(Rule rule, Specificity spec){
-		this.rule = rule;
-		this.spec = spec;
+	public StyleTask(StyleTree tree, Node n, StyledNode parent, Stylesheet sheet, StyleContext.Ancestor ancestors,
+			IdentityHashMap<Node, Integer> forks, int index){
+		this.tree = tree;
+		this.n = n;
+		this.parent = parent;
+		this.sheet = sheet;
+		this.ancestors = ancestors;
+		this.forks = forks;
+		this.index = index;
 	}
 
-	/**
-	 * Compare current object with specified {@code MatchedRule} obj on basis of 
-	 * {@code Specificity} in ascending order (with respect to canonical ordering of triples)
-	 * @param obj a {@code MatchedRule}
-	 * return positive {@code int} if the specificity of current object is greater than passed object's 
-	 * 		  {@value 0} if the specificity of current object is equal to passed object's
-	 * 		  negative {@code int} otherwise	
-	 */	      
-	public int compareTo(MatchedRule obj){
-		if(obj.spec.a != this.spec.a)
-			return this.spec.a - obj.spec.a;
-
-		else if(obj.spec.b != this.spec.b)
-			return this.spec.b - obj.spec.b;
-
-		return this.spec.c - obj.spec.c;
+	// +---------+--------------------------------------------------
+	// | Methods |
+	// +---------+
+	@Override
+	protected void compute(){
+		ArrayList<StyleTask> forked = new ArrayList<StyleTask>();
+		result = tree.styleSubtree(n, parent, sheet, new StyleContext(ancestors), forks, forked);
+
+		for(int i = forked.size()-1; i >= 0; i--){
+			StyleTask task = forked.get(i);
+			task.join();
+			task.parent.children.set(task.index, task.result);
+		}
 	}
-}
\ No newline at end of file
+}
@@ -1,15 +1,31 @@
 package renderingengine;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 
 /**
  * An {@code ArrayList} implementation of a CSS Stylesheet model.
+ *
+ * <p> The selectors of the rules are also indexed by their rightmost
+ * compound selector, the one an element must match itself: a selector with
+ * an id is filed under that id, else one with a class under its first class,
+ * else one with a tag name under that tag, and any other selector is
+ * universal. The candidate selectors of an element are then only those filed
+ * under its id, its classes and its tag, and the universal ones.
  */
 public class Stylesheet {
 	// +--------+------------------------------
 	// | Fields |
 	// +--------+
 	ArrayList<Rule> rules;
+	HashMap<Atom, ArrayList<RuleEntry>> idRules;
+	HashMap<Atom, ArrayList<RuleEntry>> classRules;
+	HashMap<Atom, ArrayList<RuleEntry>> tagRules;
+	ArrayList<RuleEntry> universalRules;
+	int entryCount; // number of indexed selectors
+	int partCount; // number of numbered ancestor parts of descendant selectors
+	UserAgentStyle userAgent; // the origin below this sheet, or null
 
 	// +-------------+----------------------------------------------------
 	// | Constructor |
@@ -19,22 +35,157 @@ public class Stylesheet {
 	 * Constructs a {@code Stylesheet} object with an empty {@code rules} field.
 	 */
 	public Stylesheet() {
-		this.rules = new ArrayList<Rule>();
+		this(new ArrayList<Rule>());
 	} // Stylesheet()
 
 	/**
 	 * Constructs a {@code Stylesheet} object out of a specified 
-	 * arraylist parameterized to {@code Rule}.
+	 * arraylist parameterized to {@code Rule}, and indexes its rules.
 	 * 
 	 * @param rules is an {@code ArrayList} of Rule
 	 */
 	public Stylesheet(ArrayList<Rule> rules) {
 		this.rules = rules;
+		this.idRules = new HashMap<Atom, ArrayList<RuleEntry>>();
+		this.classRules = new HashMap<Atom, ArrayList<RuleEntry>>();
+		this.tagRules = new HashMap<Atom, ArrayList<RuleEntry>>();
+		this.universalRules = new ArrayList<RuleEntry>();
+		for (Rule rule : rules)
+			index(rule);
 	} // Stylesheet(ArrayList<Rule>)
 
 	// +---------+----------------------------------------------------
 	// | Methods |
 	// +---------+
+
+	/**
+	 * Sets the user agent origin of the cascade, whose declarations every
+	 * declaration of this stylesheet wins over.
+	 * 
+	 * @param userAgent a {@code UserAgentStyle}, or null for none
+	 */
+	public void setUserAgent(UserAgentStyle userAgent) {
+		this.userAgent = userAgent;
+	} // setUserAgent(UserAgentStyle)
+
+	/**
+	 * Adds the specified rule at the end of the stylesheet.
+	 * 
+	 * @param rule a {@code Rule}
+	 */
+	public void addRule(Rule rule) {
+		rules.add(rule);
+		index(rule);
+	} // addRule(Rule)
+
+	/**
+	 * Files each selector of the specified rule under its rightmost compound
+	 * selector, and numbers the ancestor parts of its descendant selectors.
+	 * Each bucket is kept in cascade order.
+	 */
+	private void index(Rule rule) {
+		for (Selector selector : rule.selectors) {
+			if (selector instanceof DescendantSelector) {
+				DescendantSelector chain = (DescendantSelector) selector;
+				chain.owner = this;
+				chain.memoBase = partCount;
+				partCount += Math.max(chain.chain.size() - 1, 0);
+			}
+			RuleEntry entry = new RuleEntry(rule, selector, entryCount++);
+			SimpleSelector key = RuleEntry.rightmost(selector);
+			if (key == null)
+				insert(universalRules, entry);
+			else if (key.id != Atom.EMPTY)
+				insert(bucket(idRules, key.id), entry);
+			else if (!key.classes.isEmpty())
+				insert(bucket(classRules, key.classes.get(0)), entry);
+			else if (key.tagName != Atom.EMPTY)
+				insert(bucket(tagRules, key.tagName), entry);
+			else
+				insert(universalRules, entry);
+		}
+	} // index(Rule)
+
+	/**
+	 * Inserts the specified entry in a bucket in cascade order. An entry
+	 * added last has the greatest order, so it goes after every entry of no
+	 * greater specificity.
+	 */
+	private static void insert(ArrayList<RuleEntry> list, RuleEntry entry) {
+		int i = list.size();
+		while (i > 0 && list.get(i - 1).key > entry.key)
+			i--;
+		list.add(i, entry);
+	} // insert(ArrayList<RuleEntry>, RuleEntry)
+
+	private static ArrayList<RuleEntry> bucket(HashMap<Atom, ArrayList<RuleEntry>> map, Atom key) {
+		ArrayList<RuleEntry> list = map.get(key);
+		if (list == null) {
+			list = new ArrayList<RuleEntry>();
+			map.put(key, list);
+		}
+		return list;
+	} // bucket(HashMap<Atom, ArrayList<RuleEntry>>, Atom)
+
+	/**
+	 * Collects the selectors that may match the specified element, in cascade
+	 * order: by specificity, then by position in the stylesheet, so that the
+	 * declarations of a later one win. Every selector that matches el is
+	 * among them.
+	 * 
+	 * @param el an {@code Element}
+	 * @param context the {@code StyleContext} of the traversal, whose list of
+	 *            candidates is cleared and filled, and whose lists of buckets
+	 *            and cursors are reused for the merge
+	 */
+	public void candidates(Element el, StyleContext context) {
+		ArrayList<RuleEntry> out = context.candidates;
+		ArrayList<ArrayList<RuleEntry>> lists = context.buckets;
+		out.clear();
+		lists.clear();
+		addList(lists, universalRules);
+		if (el.id != Atom.EMPTY)
+			addList(lists, idRules.get(el.id));
+		for (int i = 0; i < el.classes.length; i++)
+			addList(lists, classRules.get(el.classes[i]));
+		addList(lists, tagRules.get(el.tagName));
+
+		if (lists.size() == 1) {
+			ArrayList<RuleEntry> list = lists.get(0);
+			for (int i = 0; i < list.size(); i++)
+				out.add(list.get(i));
+			return;
+		}
+		// merge the buckets, each already in cascade order
+		if (context.cursors.length < lists.size())
+			context.cursors = new int[2 * lists.size()];
+		int[] next = context.cursors;
+		Arrays.fill(next, 0, lists.size(), 0);
+		long last = -1;
+		while (true) {
+			int best = -1;
+			long bestKey = Long.MAX_VALUE;
+			for (int l = 0; l < lists.size(); l++) {
+				ArrayList<RuleEntry> list = lists.get(l);
+				if (next[l] < list.size() && list.get(next[l]).key < bestKey) {
+					best = l;
+					bestKey = list.get(next[l]).key;
+				}
+			}
+			if (best < 0)
+				break;
+			RuleEntry entry = lists.get(best).get(next[best]++);
+			if (entry.key != last) // a class listed twice on el
+				out.add(entry);
+			last = entry.key;
+		}
+	} // candidates(Element, StyleContext)
+
+	private static void addList(ArrayList<ArrayList<RuleEntry>> lists, ArrayList<RuleEntry> list) {
+		if (list != null && !list.isEmpty())
+			lists.add(list);
+	} // addList(ArrayList<ArrayList<RuleEntry>>, ArrayList<RuleEntry>)
+
 	@Override
 	public String toString() {
 		String str = "";
@@ -91,6 +242,96 @@ class Rule {
 	} // toString()
 } // class Rule
 
+/**
+ * {@code RuleEntry} is one selector of a rule, as filed in the index of a
+ * {@code Stylesheet}.
+ *
+ * <p> Its cascade key packs the specificity of the selector and its
+ * position in the stylesheet into one long, so that entries sort in cascade
+ * order by comparing keys: the id, class and tag counts take
+ * {@value #COUNT_BITS} bits each, most significant first, and the order the
+ * low {@value #ORDER_BITS} bits.
+ */
+class RuleEntry implements Comparable<RuleEntry> {
+	// +-----------+-----------------------------
+	// | Constants |
+	// +-----------+
+	static final int ORDER_BITS = 32;
+	static final int COUNT_BITS = 10;
+	static final int MAX_COUNT = (1 << COUNT_BITS) - 1;
+
+	// +--------+-----------------------------
+	// | Fields |
+	// +--------+
+	Rule rule;
+	Selector selector;
+	int order; // position of the selector in the stylesheet
+	long key; // the cascade key, computed once
+
+	// +-------------+----------------------------------------------------
+	// | Constructor |
+	// +-------------+
+	
+	/**
+	 * Constructs a {@code RuleEntry} object.
+	 * 
+	 * @param rule a {@code Rule}
+	 * @param selector a {@code Selector} of rule
+	 * @param order an int
+	 */
+	public RuleEntry(Rule rule, Selector selector, int order) {
+		this.rule = rule;
+		this.selector = selector;
+		this.order = order;
+		this.key = cascadeKey(selector.getSpec(), order);
+	} // RuleEntry(Rule, Selector, int)
+
+	// +---------+----------------------------------------------------
+	// | Methods |
+	// +---------+
+
+	/**
+	 * Packs the specified specificity and order into a cascade key. A count
+	 * too large for its bits is kept at the maximum.
+	 * 
+	 * @param spec a {@code Specificity}
+	 * @param order a non-negative int
+	 * @return a long, greater for a declaration that wins
+	 */
+	static long cascadeKey(Specificity spec, int order) {
+		long key = Math.min(spec.a, MAX_COUNT);
+		key = (key << COUNT_BITS) | Math.min(spec.b, MAX_COUNT);
+		key = (key << COUNT_BITS) | Math.min(spec.c, MAX_COUNT);
+		return (key << ORDER_BITS) | order;
+	} // cascadeKey(Specificity, int)
+
+	/**
+	 * Compares the cascade keys, so that entries sort in cascade order.
+	 */
+	@Override
+	public int compareTo(RuleEntry obj) {
+		return Long.compare(key, obj.key);
+	} // compareTo(RuleEntry)
+
+	/**
+	 * Gets the compound selector that the subject element of the specified
+	 * selector must match.
+	 * 
+	 * @param selector a {@code Selector}
+	 * @return a {@code SimpleSelector}, or null if selector has none
+	 */
+	static SimpleSelector rightmost(Selector selector) {
+		if (selector instanceof SimpleSelector)
+			return (SimpleSelector) selector;
+		if (selector instanceof DescendantSelector) {
+			ArrayList<SimpleSelector> chain = ((DescendantSelector) selector).chain;
+			if (!chain.isEmpty())
+				return chain.get(chain.size() - 1);
+		}
+		return null;
+	} // rightmost(Selector)
+} // class RuleEntry
+
 /**
  * A Selector is an representation of a CSS Declaration selector
  */
@@ -125,13 +366,15 @@ class Selector implements Comparable<Selector> {
 
 	@Override
 	public int compareTo(Selector obj) {
-		if (obj.spec.a != this.spec.a)
-			return obj.spec.a - this.spec.a;
+		Specificity mine = getSpec();
+		Specificity theirs = obj.getSpec();
+		if (theirs.a != mine.a)
+			return theirs.a - mine.a;
 
-		else if (obj.spec.b != this.spec.b)
-			return obj.spec.b - this.spec.b;
+		else if (theirs.b != mine.b)
+			return theirs.b - mine.b;
 
-		return obj.spec.c - this.spec.c;
+		return theirs.c - mine.c;
 	} // compareTo(Selector)
 
 } // class Selector
@@ -144,9 +387,9 @@ class SimpleSelector extends Selector {
 	// +--------+-----------------------------
 	// | Fields |
 	// +--------+
-	String tagName;
-	String id;
-	ArrayList<String> classes;
+	Atom tagName;
+	Atom id;
+	ArrayList<Atom> classes;
 
 	// +-------------+----------------------------------------------------
 	// | Constructor |
@@ -159,9 +402,9 @@ class SimpleSelector extends Selector {
 	 */
 	public SimpleSelector() {
 		super();
-		tagName = "";
-		id = "";
-		classes = new ArrayList<String>();
+		tagName = Atom.EMPTY;
+		id = Atom.EMPTY;
+		classes = new ArrayList<Atom>();
 	} // SimpleSelector()
 
 	// +---------------------+----------------------------------------------------
@@ -169,69 +412,67 @@ class SimpleSelector extends Selector {
 	// +---------------------+
 
 	/**
-	 * Sets {@code this.tagName} to the specified to string.
+	 * Sets {@code this.tagName} to the specified atom.
 	 * 
-	 * @param name a {@code String}
+	 * @param name an {@code Atom}
 	 */
-	public void setTagName(String name) {
+	public void setTagName(Atom name) {
 		tagName = name;
-		// spec.c++;
-	} // setTagName(String)
+		spec.c = (name != Atom.EMPTY) ? 1 : 0;
+	} // setTagName(Atom)
 
 	/**
-	 * Sets {@code this.id} to the specified to string.
+	 * Sets {@code this.id} to the specified atom.
 	 * 
-	 * @param id a {@code String}
+	 * @param id an {@code Atom}
 	 */
-	public void setId(String id) {
+	public void setId(Atom id) {
 		this.id = id;
-		// spec.a++;
-	} // setId(String)
-
-	/**
-	 * Returns the specificity of {@code this}.
-	 */
-	public Specificity getSpec() {
-		if (tagName != "")
-			spec.c = 1;
-		if (id != "")
-			spec.a = 1;
-
-		spec.c = classes.size();
-
-		return spec;
-	} // getSpec()
+		spec.a = (id != Atom.EMPTY) ? 1 : 0;
+	} // setId(Atom)
 
 	// +---------+----------------------------------------------------
 	// | Methods |
 	// +---------+
 
 	/**
-	 * Adds the specified string to the {@code ArrayList} classes
+	 * Adds the specified atom to the {@code ArrayList} classes
 	 * 
-	 * @param clas a {@code String}
+	 * @param clas an {@code Atom}
 	 */
-	public void addClass(String clas) {
+	public void addClass(Atom clas) {
 		classes.add(clas);
-		// spec.b++;
-	} // addClass(String)
+		spec.b++;
+	} // addClass(Atom)
 
 	@Override
 	public String toString() {
 		String str = "";
-		str += tagName + id + classes;
+		str += tagName.name + id.name + classes;
 		return str;
 	} // toString()
 } // class SimpleSelector
 
 /**
- * {@code DescendantSelector} is
+ * {@code DescendantSelector} is a chain of compound selectors, each matched
+ * by a descendant of an element that matches the one before it. The last
+ * compound selector is matched by the subject element itself.
+ *
+ * <p> When a {@code Stylesheet} indexes the selector, it numbers the
+ * ancestor parts of the chain, every part but the last, from
+ * {@code memoBase}, so that the results of matching them can be kept per
+ * ancestor by a {@code StyleContext}.
+ *
+ * <p> Its specificity is the sum of those of its parts, kept as each part is
+ * added by {@link #addPart(SimpleSelector)}.
  */
 class DescendantSelector extends Selector {
 	// +--------+-----------------------------
 	// | Fields |
 	// +--------+
 	ArrayList<SimpleSelector> chain;
+	Stylesheet owner; // the stylesheet that numbered the parts, or null
+	int memoBase; // the number of chain.get(0)
 
 	// +-------------+----------------------------------------------------
 	// | Constructor |
@@ -239,21 +480,24 @@ class DescendantSelector extends Selector {
 	public DescendantSelector() {
 		super();
 		chain = new ArrayList<SimpleSelector>();
+		owner = null;
+		memoBase = -1;
 	} // DescendantSelector()
 
 	// +---------+----------------------------------------------------
-	// | Getters |
+	// | Methods |
 	// +---------+
-	public Specificity getSpec() {
-		this.spec = new Specificity(0, 0, 0);
-
-		for (SimpleSelector sel : chain) {
-			Specificity part = sel.getSpec();
-			this.spec.add(part);
-		}
-
-		return this.spec;
-	} // getSpec()
+	/**
+	 * Adds the specified compound selector, whose tag name, id and classes
+	 * are set, at the end of the chain, and adds its specificity to that of
+	 * {@code this}.
+	 * 
+	 * @param part a {@code SimpleSelector}
+	 */
+	public void addPart(SimpleSelector part) {
+		chain.add(part);
+		spec.add(part.getSpec());
+	} // addPart(SimpleSelector)
 
 } // class DescendentSelector
 
@@ -266,6 +510,7 @@ class Declaration {
 	// | Fields |
 	// +--------+
 	String name;
+	Property property; // the property of name, or null if it is not used
 	Value value;
 
 	// +-------------+----------------------------------------------------
@@ -277,6 +522,7 @@ class Declaration {
 	 */
 	public Declaration() {
 		name = "";
+		property = null;
 		value = null;
 	} // Declaration()
 
@@ -288,6 +534,7 @@ class Declaration {
 	 */
 	public Declaration(String name, Value value) {
 		this.name = name;
+		this.property = Property.of(name);
 		this.value = value;
 	} // Declaration(String, Value)
 
@@ -302,6 +549,7 @@ class Declaration {
 	 */
 	public void setName(String name) {
 		this.name = name;
+		this.property = Property.of(name);
 	} // setName(String)
 
 	/**
@@ -326,12 +574,21 @@ class Declaration {
 
 /**
  * This class represents the value assigned to a property
+ * 
+ * Values are immutable, so one value is shared by every style that has it
  */
 class Value {
+	// +-----------+-----------------------------
+	// | Constants |
+	// +-----------+
+
+	/** The value of a property that is not set. */
+	static final Value UNSET = new Value(false);
+
 	// +--------+-----------------------------
 	// | Fields |
 	// +--------+
-	boolean exists;
+	final boolean exists;
 
 	// +-------------+----------------------------------------------------
 	// | Constructor |
@@ -391,10 +648,16 @@ class Value {
  * {@code Keyword} represents a CSS value that is just a string.
  */
 class Keyword extends Value {
+	// +-----------+-----------------------------
+	// | Constants |
+	// +-----------+
+	static final Keyword AUTO = new Keyword("auto");
+
 	// +--------+-----------------------------
 	// | Fields |
 	// +--------+
-	String name;
+	final String name;
+	final Atom atom; // the atom of name
 
 	// +-------------+----------------------------------------------------
 	// | Constructor |
@@ -409,6 +672,7 @@ class Keyword extends Value {
 		super();
 		if (name != null) {
 			this.name = name;
+			this.atom = Atom.of(name);
 		} else {
 			throw new NullPointerException();
 		}
@@ -421,6 +685,16 @@ class Keyword extends Value {
 	public String toString() {
 		return name;
 	} // toString()
+
+	@Override
+	public boolean equals(Object obj) {
+		return (obj instanceof Keyword) && ((Keyword) obj).name.equals(name);
+	} // equals(Object)
+
+	@Override
+	public int hashCode() {
+		return name.hashCode();
+	} // hashCode()
 } // class Keyword
 
 /**
@@ -431,8 +705,8 @@ class Length extends Value {
 	// +--------+-----------------------------
 	// | Fields |
 	// +--------+
-	double len;
-	String unit;
+	final double len;
+	final String unit;
 
 	// +-------------+----------------------------------------------------
 	// | Constructor |
@@ -448,16 +722,49 @@ class Length extends Value {
 		this.len = len;
 		this.unit = unit;
 	} // Length(double, String)
+
+	// +---------+----------------------------------------------------
+	// | Methods |
+	// +---------+
+
+	/**
+	 * Checks if {@code this} is a percentage of another length.
+	 * 
+	 * @return boolean
+	 */
+	public boolean isPercent() {
+		return unit.equals("%");
+	} // isPercent()
+
+	@Override
+	public boolean equals(Object obj) {
+		if (!(obj instanceof Length))
+			return false;
+		Length other = (Length) obj;
+		return other.len == len && other.unit.equals(unit);
+	} // equals(Object)
+
+	@Override
+	public int hashCode() {
+		return 31 * Double.hashCode(len) + unit.hashCode();
+	} // hashCode()
 } // class Length
 
 /**
  * {@code Color} represents a color value in RGBA.
  */
 class Color extends Value {
+	// +-----------+-----------------------------
+	// | Constants |
+	// +-----------+
+
+	/** The color of a property that is not set. */
+	static final Color NONE = new Color(false);
+
 	// +--------+-----------------------------
 	// | Fields |
 	// +--------+
-	int r, g, b, a;
+	final int r, g, b, a;
 
 	// +-------------+----------------------------------------------------
 	// | Constructor |
@@ -470,6 +777,10 @@ class Color extends Value {
 	 */
 	public Color(boolean exists) {
 		super(exists);
+		this.r = 0;
+		this.g = 0;
+		this.b = 0;
+		this.a = 0;
 	} // Color(boolean)
 
 	/**
@@ -495,6 +806,19 @@ class Color extends Value {
 	public String toString() {
 		return "(" + r + "," + g + "," + b + ")";
 	} // toString()
+
+	@Override
+	public boolean equals(Object obj) {
+		if (!(obj instanceof Color))
+			return false;
+		Color other = (Color) obj;
+		return other.exists == exists && other.r == r && other.g == g && other.b == b && other.a == a;
+	} // equals(Object)
+
+	@Override
+	public int hashCode() {
+		return (exists ? 1 : 0) + 31 * (r + 31 * (g + 31 * (b + 31 * a)));
+	} // hashCode()
 } // class Color
 
 /**
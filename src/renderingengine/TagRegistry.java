@@ -0,0 +1,112 @@
+package renderingengine;
+
+/**
+ * The parsing flags of the html tags, looked up by the id of the tag's
+ * {@code Atom}.
+ *
+ * <p> The registry is compiled into the class, so it needs no file at
+ * startup, and every lookup is a bounds check and an array read. Every listed
+ * tag is in the vocabulary of {@code Atom}; a tag that is not listed, or has no
+ * id, has no flags.
+ *
+ * <ul>
+ * <li>{@link #VOID} tags have no children and no closing tag, such as
+ * {@code <img>}.</li>
+ * <li>{@link #RAW_TEXT} tags hold text that is not parsed as html, up to
+ * their closing tag, such as {@code <script>}.</li>
+ * <li>{@link #IMPLIED_END} tags may have their closing tag left out, such as
+ * {@code <li>}.</li>
+ * </ul>
+ */
+public final class TagRegistry {
+
+	// +-----------+-------------------------------
+	// | Constants |
+	// +-----------+
+	static final int VOID = 1;
+	static final int RAW_TEXT = 2;
+	static final int IMPLIED_END = 4;
+
+	static final String[] VOID_TAGS = { "area", "base", "br", "col", "command", "embed", "hr", "img", "input",
+			"keygen", "link", "meta", "param", "source", "track", "wbr" };
+	static final String[] RAW_TEXT_TAGS = { "script", "style", "textarea", "title" };
+	static final String[] IMPLIED_END_TAGS = { "dd", "dt", "li", "optgroup", "option", "p", "rb", "rp", "rt",
+			"rtc" };
+
+	/** The flags of each tag, indexed by atom id. */
+	private static final byte[] FLAGS = build();
+
+	// +--------------+---------------------------
+	// | Constructors |
+	// +--------------+
+
+	private TagRegistry() {
+	} // TagRegistry()
+
+	// +---------+--------------------------------------------------
+	// | Methods |
+	// +---------+
+
+	/**
+	 * Gets the flags of the specified tag.
+	 *
+	 * @param tagName an {@code Atom}
+	 * @return a bitwise or of {@code VOID}, {@code RAW_TEXT} and
+	 *         {@code IMPLIED_END}
+	 */
+	public static int flags(Atom tagName) {
+		int id = tagName.id;
+		return (id >= 0 && id < FLAGS.length) ? FLAGS[id] : 0;
+	} // flags(Atom)
+
+	/**
+	 * Checks if the specified tag is a void element, with no children and no
+	 * closing tag.
+	 *
+	 * @param tagName an {@code Atom}
+	 * @return boolean
+	 */
+	public static boolean isVoid(Atom tagName) {
+		return (flags(tagName) & VOID) != 0;
+	} // isVoid(Atom)
+
+	/**
+	 * Checks if the content of the specified tag is raw text.
+	 *
+	 * @param tagName an {@code Atom}
+	 * @return boolean
+	 */
+	public static boolean isRawText(Atom tagName) {
+		return (flags(tagName) & RAW_TEXT) != 0;
+	} // isRawText(Atom)
+
+	/**
+	 * Checks if the closing tag of the specified tag may be left out.
+	 *
+	 * @param tagName an {@code Atom}
+	 * @return boolean
+	 */
+	public static boolean hasImpliedEnd(Atom tagName) {
+		return (flags(tagName) & IMPLIED_END) != 0;
+	} // hasImpliedEnd(Atom)
+
+	/**
+	 * Creates the table of flags, once every listed tag has an atom.
+	 */
+	private static byte[] build() {
+		String[][] groups = { VOID_TAGS, RAW_TEXT_TAGS, IMPLIED_END_TAGS };
+		int[] groupFlags = { VOID, RAW_TEXT, IMPLIED_END };
+		int size = 0;
+		for (String[] group : groups) {
+			for (String name : group)
+				size = Math.max(size, Atom.of(name).id + 1);
+		}
+		byte[] table = new byte[size];
+		for (int g = 0; g < groups.length; g++) {
+			for (String name : groups[g])
+				table[Atom.of(name).id] |= groupFlags[g];
+		}
+		return table;
+	} // build()
+
+} // class TagRegistry
@@ -0,0 +1,132 @@
+package renderingengine;
+
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The measurements of text in one font, as the layout needs them.
+ *
+ * <p> The metrics come from an offscreen image, with no antialiasing and no
+ * fractional metrics, so they are those of a component on screen, but no
+ * window or peer is created: the service also works in a JVM run with
+ * {@code -Djava.awt.headless=true}. There is one {@code TextMetrics} per
+ * font, shared by the whole process. It keeps the advance of each Latin-1
+ * character, so that the width of Latin text is a sum of table entries; the
+ * width of any other string is measured once and kept. Those widths are
+ * dropped when {@value #MAX_WIDTHS} are kept.
+ */
+public final class TextMetrics {
+
+	// +-----------+-------------------------------
+	// | Constants |
+	// +-----------+
+
+	/** The number of characters whose advances are kept in a table. */
+	static final int LATIN = 256;
+	/** The number of widths of other strings kept per font. */
+	static final int MAX_WIDTHS = 1 << 14;
+
+	private static final ConcurrentHashMap<Font, TextMetrics> METRICS = new ConcurrentHashMap<Font, TextMetrics>();
+	private static final Graphics2D OFFSCREEN =
+			new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB).createGraphics();
+
+	// +--------+----------------------------------
+	// | Fields |
+	// +--------+
+	final FontMetrics metrics;
+	final int height;
+	final int[] advances; // the advance of each Latin-1 character
+	final ConcurrentHashMap<String, Integer> widths; // the widths of other strings
+
+	// +--------------+---------------------------
+	// | Constructors |
+	// +--------------+
+
+	private TextMetrics(FontMetrics metrics) {
+		this.metrics = metrics;
+		this.height = metrics.getHeight();
+		this.advances = new int[LATIN];
+		for (int c = 0; c < LATIN; c++)
+			advances[c] = metrics.charWidth((char) c);
+		this.widths = new ConcurrentHashMap<String, Integer>();
+	} // TextMetrics(FontMetrics)
+
+	// +---------+--------------------------------------------------
+	// | Methods |
+	// +---------+
+
+	/**
+	 * Gets the metrics of the specified font.
+	 *
+	 * @param font a {@code Font}
+	 * @return the {@code TextMetrics} shared by every user of font
+	 */
+	public static TextMetrics of(Font font) {
+		TextMetrics tm = METRICS.get(font);
+		if (tm == null) {
+			FontMetrics metrics;
+			synchronized (OFFSCREEN) {
+				metrics = OFFSCREEN.getFontMetrics(font);
+			}
+			tm = new TextMetrics(metrics);
+			TextMetrics kept = METRICS.putIfAbsent(font, tm);
+			if (kept != null)
+				tm = kept;
+		}
+		return tm;
+	} // of(Font)
+
+	/**
+	 * Gets the height of a line of text.
+	 *
+	 * @return an int, in pixels
+	 */
+	public int getHeight() {
+		return height;
+	} // getHeight()
+
+	/**
+	 * Gets the advance of the specified character.
+	 *
+	 * @param c a char
+	 * @return an int, in pixels
+	 */
+	public int charWidth(char c) {
+		return (c < LATIN) ? advances[c] : metrics.charWidth(c);
+	} // charWidth(char)
+
+	/**
+	 * Gets the width of the specified string.
+	 *
+	 * @param str a {@code String}
+	 * @return an int, in pixels
+	 */
+	public int stringWidth(String str) {
+		int width = 0;
+		for (int i = 0; i < str.length(); i++) {
+			char c = str.charAt(i);
+			if (c >= LATIN)
+				return otherWidth(str);
+			width += advances[c];
+		}
+		return width;
+	} // stringWidth(String)
+
+	/**
+	 * Measures a string that is not all Latin-1, or gets its kept width.
+	 */
+	private int otherWidth(String str) {
+		Integer width = widths.get(str);
+		if (width == null) {
+			width = metrics.stringWidth(str);
+			if (widths.size() >= MAX_WIDTHS)
+				widths.clear();
+			widths.put(str, width);
+		}
+		return width;
+	} // otherWidth(String)
+
+} // class TextMetrics
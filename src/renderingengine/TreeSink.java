@@ -0,0 +1,77 @@
+package renderingengine;
+
+/**
+ * {@code TreeSink} receives the nodes of a document, in document order, as
+ * they are parsed. {@code DOMBuilder} links them into a {@code DOM};
+ * {@code CompactDOM} copies them into its arrays.
+ *
+ * <p> The text of a node and the value of an attribute are passed as a span
+ * [start, end) of the parser's input, which the sink only reads during the
+ * call. A sink that keeps them copies the characters of the span, every
+ * whitespace character becoming ' ', as {@link Parser#slice(int, int)} does.
+ */
+interface TreeSink {
+
+	/**
+	 * Adds an element with the specified tag name, which has no children, as
+	 * the last child of the current element. An element added when no element
+	 * is open is the root. Its attributes follow, up to
+	 * {@link #endAttributes(boolean)}.
+	 *
+	 * @param tagName an {@code Atom}
+	 */
+	void startElement(Atom tagName);
+
+	/**
+	 * Adds an attribute to the element added by the last call to
+	 * {@link #startElement(Atom)}. A later attribute with the same name
+	 * replaces it.
+	 *
+	 * @param name a lower case {@code Atom}
+	 * @param src a {@code CharSequence} that holds the value, as written in
+	 *            the document
+	 * @param start the start of the value in src
+	 * @param end the end of the value in src
+	 */
+	void attribute(Atom name, CharSequence src, int start, int end);
+
+	/**
+	 * Ends the attributes of the element added by the last call to
+	 * {@link #startElement(Atom)}, and makes it the current element if it
+	 * has children.
+	 *
+	 * @param open true if the element has children, false if it is void
+	 */
+	void endAttributes(boolean open);
+
+	/**
+	 * Adds a text node as the last child of the current element. A text node
+	 * added when no element is open is the root.
+	 *
+	 * @param src a {@code CharSequence} that holds the text
+	 * @param start the start of the text in src
+	 * @param end the end of the text in src
+	 */
+	void text(CharSequence src, int start, int end);
+
+	/**
+	 * Closes the current element. Closing the root, or closing when no element
+	 * is open, ends the document.
+	 */
+	void closeElement();
+
+	/**
+	 * Gets the number of open elements.
+	 *
+	 * @return an int
+	 */
+	int depth();
+
+	/**
+	 * Checks if the document has ended, after which nodes are ignored.
+	 *
+	 * @return boolean
+	 */
+	boolean isDone();
+
+} // interface TreeSink
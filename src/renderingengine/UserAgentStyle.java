@@ -0,0 +1,142 @@
+package renderingengine;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+
+/**
+ * The user agent origin of the cascade: the styles the engine gives every
+ * page before its author stylesheets, read from {@value #DEFAULT_SHEET}.
+ *
+ * <p> The rules of the user agent sheet are compiled once into a template
+ * per tag: the values that its rules with a tag or universal selector give
+ * an element of that tag, in cascade order. An element is styled by
+ * starting from the template of its tag and applying the author rules on
+ * top, so that every author declaration wins over the user agent. Rules
+ * whose selectors need more than the tag, which the default sheet has none
+ * of, are kept in {@link #rest} and matched before the author rules.
+ *
+ * @see Stylesheet#setUserAgent(UserAgentStyle)
+ */
+public final class UserAgentStyle {
+
+	// +-----------+-------------------------------
+	// | Constants |
+	// +-----------+
+
+	/** The path of the default user agent stylesheet. */
+	public static final String DEFAULT_SHEET = "./defaultsheet.txt";
+
+	// +--------+----------------------------------
+	// | Fields |
+	// +--------+
+	final HashMap<Atom, ComputedStyle> templates; // the template of each tag named by a rule
+	final ComputedStyle universal; // the template of any other tag
+	final Stylesheet rest; // the rules that are not compiled into the templates
+
+	private static UserAgentStyle defaults;
+
+	// +--------------+---------------------------
+	// | Constructors |
+	// +--------------+
+
+	/**
+	 * Constructs the user agent origin of the specified stylesheet.
+	 *
+	 * @param sheet a {@code Stylesheet}, the user agent sheet
+	 */
+	public UserAgentStyle(Stylesheet sheet) {
+		ArrayList<RuleEntry> tagEntries = new ArrayList<RuleEntry>();
+		ArrayList<Rule> others = new ArrayList<Rule>();
+		int order = 0;
+		for (Rule rule : sheet.rules) {
+			ArrayList<Selector> complex = new ArrayList<Selector>();
+			for (Selector selector : rule.selectors) {
+				if (isTagOnly(selector))
+					tagEntries.add(new RuleEntry(rule, selector, order++));
+				else
+					complex.add(selector);
+			}
+			if (!complex.isEmpty())
+				others.add(new Rule(complex, rule.declarations));
+		}
+		Collections.sort(tagEntries);
+
+		templates = new HashMap<Atom, ComputedStyle>();
+		universal = compile(tagEntries, Atom.EMPTY);
+		for (RuleEntry entry : tagEntries) {
+			Atom tag = ((SimpleSelector) entry.selector).tagName;
+			if (tag != Atom.EMPTY && !templates.containsKey(tag))
+				templates.put(tag, compile(tagEntries, tag));
+		}
+
+		rest = new Stylesheet(others);
+		for (Rule rule : others) {
+			for (Selector selector : rule.selectors) {
+				// the ancestor results of a StyleContext are kept for the author sheet only
+				if (selector instanceof DescendantSelector)
+					((DescendantSelector) selector).owner = null;
+			}
+		}
+	} // UserAgentStyle(Stylesheet)
+
+	// +---------+--------------------------------------------------
+	// | Methods |
+	// +---------+
+
+	/**
+	 * Gets the user agent origin of {@value #DEFAULT_SHEET}, which is read
+	 * and compiled the first time only.
+	 *
+	 * @return a {@code UserAgentStyle}
+	 * @throws IOException if the default sheet cannot be read
+	 */
+	public static synchronized UserAgentStyle defaults() throws IOException {
+		if (defaults == null)
+			defaults = new UserAgentStyle(new CSSParser(ResourceLoader.loadString(new File(DEFAULT_SHEET))).sheet);
+		return defaults;
+	} // defaults()
+
+	/**
+	 * Gets a new style, not frozen, holding the template of the specified
+	 * tag.
+	 *
+	 * @param tagName an {@code Atom}
+	 * @return a {@code ComputedStyle}
+	 */
+	public ComputedStyle start(Atom tagName) {
+		ComputedStyle template = templates.get(tagName);
+		return new ComputedStyle((template == null) ? universal : template);
+	} // start(Atom)
+
+	/**
+	 * Checks if the specified selector is a tag or universal selector only.
+	 */
+	private static boolean isTagOnly(Selector selector) {
+		if (!(selector instanceof SimpleSelector))
+			return false;
+		SimpleSelector simple = (SimpleSelector) selector;
+		return simple.id == Atom.EMPTY && simple.classes.isEmpty();
+	} // isTagOnly(Selector)
+
+	/**
+	 * Applies, in cascade order, the entries that match any element of the
+	 * specified tag, or only the universal ones if tag is empty.
+	 */
+	private static ComputedStyle compile(ArrayList<RuleEntry> entries, Atom tag) {
+		ComputedStyle style = new ComputedStyle();
+		for (RuleEntry entry : entries) {
+			Atom selected = ((SimpleSelector) entry.selector).tagName;
+			if (selected != Atom.EMPTY && selected != tag)
+				continue;
+			for (Declaration decl : entry.rule.declarations) {
+				if (decl.property != null)
+					style.set(decl.property, decl.value);
+			}
+		}
+		return style;
+	} // compile(ArrayList<RuleEntry>, Atom)
+
+} // class UserAgentStyle